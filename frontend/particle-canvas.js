@@ -0,0 +1,114 @@
+// Draws the binary particle frames sent by ParticleCanvas.java.
+// A frame is base64 encoded: an 8-byte little-endian header with the kind of
+// frame in the first byte and the number of particles in the last four, then
+// the x, y pairs as float32, as uint16 fractions of the box size, or as int8
+// differences from the previous uint16 frame.
+// Frames are acknowledged to the server once drawn, by echoing the sequence
+// number of the latest one, so that it can pace them.
+
+const FLOAT32_FRAME = 0;
+const QUANTISED_FRAME = 1;
+const DELTA_FRAME = 2;
+const HEADER_BYTES = 8;
+const LEVELS = 0xffff;
+
+class ParticleCanvas extends HTMLElement {
+
+  constructor() {
+    super();
+    this.size = this.size ?? 1;
+    this.radius = this.radius ?? 1;
+    this._positions = new Float32Array(0);
+    this._quantised = new Int32Array(0);
+    this._renderPending = false;
+    this._drawnSequence = null;
+    this._acknowledgedSequence = null;
+    const root = this.attachShadow({ mode: 'open' });
+    root.innerHTML = '<style>:host { display: block; } canvas { width: 100%; height: 100%; display: block; }</style>';
+    this._canvas = document.createElement('canvas');
+    root.appendChild(this._canvas);
+    this._resizeObserver = new ResizeObserver(() => this._scheduleRender());
+  }
+
+  connectedCallback() {
+    this._resizeObserver.observe(this);
+  }
+
+  disconnectedCallback() {
+    this._resizeObserver.disconnect();
+  }
+
+  draw(frame, sequence) {
+    this._drawnSequence = sequence;
+    this._scheduleRender();
+    const bytes = Uint8Array.from(atob(frame), c => c.charCodeAt(0));
+    const header = new DataView(bytes.buffer);
+    const kind = header.getUint8(0);
+    const n = header.getUint32(4, true);
+    if (kind === FLOAT32_FRAME) {
+      this._positions = new Float32Array(bytes.buffer, HEADER_BYTES, 2 * n);
+    } else {
+      if (kind === QUANTISED_FRAME) {
+        this._quantised = Int32Array.from(new Uint16Array(bytes.buffer, HEADER_BYTES, 2 * n));
+      } else if (kind === DELTA_FRAME && this._quantised.length === 2 * n) {
+        const deltas = new Int8Array(bytes.buffer, HEADER_BYTES, 2 * n);
+        for (let i = 0; i < deltas.length; ++i) {
+          this._quantised[i] += deltas[i];
+        }
+      } else {
+        // A delta without its keyframe, the server sends a keyframe after a reset
+        return;
+      }
+      if (this._positions.length !== 2 * n || this._positions.byteOffset !== 0) {
+        this._positions = new Float32Array(2 * n);
+      }
+      const scale = this.size / LEVELS;
+      for (let i = 0; i < this._quantised.length; ++i) {
+        this._positions[i] = this._quantised[i] * scale;
+      }
+    }
+  }
+
+  _scheduleRender() {
+    if (!this._renderPending) {
+      this._renderPending = true;
+      requestAnimationFrame(() => {
+        this._renderPending = false;
+        this._render();
+      });
+    }
+  }
+
+  _render() {
+    const ratio = window.devicePixelRatio || 1;
+    const width = Math.round(this.clientWidth * ratio);
+    const height = Math.round(this.clientHeight * ratio);
+    if (this._canvas.width !== width || this._canvas.height !== height) {
+      this._canvas.width = width;
+      this._canvas.height = height;
+    }
+    const context = this._canvas.getContext('2d');
+    context.clearRect(0, 0, width, height);
+    const side = Math.min(width, height);
+    const scale = side / this.size;
+    const radius = Math.max(1.5 * ratio, this.radius * scale);
+    context.strokeStyle = getComputedStyle(this).getPropertyValue('--lumo-contrast-20pct') || '#ccc';
+    context.strokeRect(0.5, 0.5, side - 1, side - 1);
+    context.fillStyle = getComputedStyle(this).getPropertyValue('--lumo-primary-color') || '#1676f3';
+    context.beginPath();
+    const positions = this._positions;
+    for (let i = 0; i < positions.length; i += 2) {
+      const x = positions[i] * scale;
+      const y = side - positions[i + 1] * scale;
+      context.moveTo(x + radius, y);
+      context.arc(x, y, radius, 0, 2 * Math.PI);
+    }
+    context.fill();
+    if (this._drawnSequence !== this._acknowledgedSequence && this.$server) {
+      this.$server.acknowledge(this._drawnSequence);
+      this._acknowledgedSequence = this._drawnSequence;
+    }
+  }
+}
+
+customElements.define('particle-canvas', ParticleCanvas);
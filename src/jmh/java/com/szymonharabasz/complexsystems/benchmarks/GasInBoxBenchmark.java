@@ -0,0 +1,106 @@
+package com.szymonharabasz.complexsystems.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxService;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxSystem;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.LennardJones;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.PairPotential;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.Particle;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.ParticleStore;
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.Integrator;
+
+/**
+ * Gas in a box hot paths, in reduced units (σ = ε = m = 1). The box side
+ * follows from the particle count and the density in particles per σ².
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GasInBoxBenchmark {
+
+    private static final double SIGMA = 1.0;
+    private static final double EPSILON = 1.0;
+    private static final double M = 1.0;
+    private static final double V0 = Math.sqrt(2 * EPSILON / M);
+    private static final double DT = 0.001 * SIGMA / V0;
+
+    @Param({"1000", "10000", "100000"})
+    private int n;
+
+    @Param({"0.01", "0.1", "0.5"})
+    private double density;
+
+    @Param({"1", "100"})
+    private int steps;
+
+    private final GasInBoxService service = new GasInBoxService();
+    private double l;
+    private PairPotential potential;
+    private List<Particle> initial;
+    private GasInBoxSystem system;
+    private final Integrator integrator = Integrator.positionVerlet();
+
+    @Setup
+    public void setUp() {
+        l = Math.sqrt(n / density) * SIGMA;
+        potential = LennardJones.of(EPSILON, SIGMA);
+        initial = lattice(n, l, V0);
+        system = service.system(ParticleStore.fromParticles(initial), l, M, potential);
+    }
+
+    /**
+     * Steps one system kept across invocations, so the neighbour list is
+     * rebuilt only when the skin is used up, as in a real run.
+     */
+    @Benchmark
+    public ParticleStore propagate() {
+        for (int i = 0; i < steps; ++i) {
+            integrator.step(system, DT);
+        }
+        return system.store();
+    }
+
+    @Benchmark
+    public void leapfrog(Blackhole blackhole) {
+        service.leapfrog(initial, l, M, potential, DT).limit(steps).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public double totalPotentialEnergy() {
+        return service.totalPotentialEnergy(potential, initial, l);
+    }
+
+    private static List<Particle> lattice(int n, double l, double v0) {
+        var random = new Random(42);
+        int side = (int) Math.ceil(Math.sqrt(n));
+        double spacing = l / side;
+        List<Particle> particles = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            var theta = random.nextDouble() * 2 * Math.PI;
+            particles.add(new Particle(
+                (i % side + 0.5) * spacing, (i / side + 0.5) * spacing,
+                v0 * Math.cos(theta), v0 * Math.sin(theta)));
+        }
+        return particles;
+    }
+}
@@ -0,0 +1,51 @@
+package com.szymonharabasz.complexsystems.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxService;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.InitialConditions;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.Particle;
+
+/**
+ * Initial placement of the gas particles with each placement strategy,
+ * kept apart from {@link GasInBoxBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GasInBoxInitializeBenchmark {
+
+    private static final double SIGMA = 1.0;
+    private static final double V0 = Math.sqrt(2.0);
+
+    @Param({"1000", "10000", "100000"})
+    private int n;
+
+    @Param({"0.01", "0.1"})
+    private double density;
+
+    @Param({"SQUARE_LATTICE", "HEXAGONAL_LATTICE", "RANDOM_SEQUENTIAL", "DENSITY_RAMP"})
+    private InitialConditions.Placement placement;
+
+    private final GasInBoxService service = new GasInBoxService();
+
+    @Benchmark
+    public List<Particle> initialize() {
+        return service.initialize(n, Math.sqrt(n / density) * SIGMA, V0, SIGMA, placement);
+    }
+}
@@ -0,0 +1,120 @@
+package com.szymonharabasz.complexsystems.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.HarmonicOscillatorProperties;
+import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.HarmonicOscillatorService;
+import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.OscillatorRun;
+import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.OscillatorRunCache;
+import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.ParameterGrid;
+import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.SweepResult;
+import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.Trend;
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.Integrator;
+
+/**
+ * Oscillator hot paths with the defaults of the harmonic oscillator view:
+ * the stream integrators followed by {@code extractTrend}, the primitive
+ * {@code integrate} and {@code run} paths, the run cache, and a parameter
+ * sweep of 1024 members around the defaults.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HarmonicOscillatorBenchmark {
+
+    private static final HarmonicOscillatorProperties PROPS = new HarmonicOscillatorProperties(0.1, 5.0, 0.0, 0.0, -10.0);
+    private static final double DT = 0.015;
+
+    @Param({"100", "1000", "10000"})
+    private int steps;
+
+    private static final ParameterGrid GRID = new ParameterGrid(
+        ParameterGrid.linspace(0.05, 0.2, 4), ParameterGrid.linspace(2.5, 10.0, 4),
+        new double[] {0.0}, new double[] {0.0}, new double[] {-10.0}, ParameterGrid.linspace(0.001, 0.03, 64));
+
+    private final HarmonicOscillatorService service = new HarmonicOscillatorService();
+    private final Integrator integrator = Integrator.positionVerlet();
+    private Trend trend;
+    private OscillatorRunCache warmCache;
+    private OscillatorRunCache coldCache;
+
+    @Setup
+    public void setUp() {
+        trend = Trend.ofLength(steps);
+        warmCache = new OscillatorRunCache(service, 1, Long.MAX_VALUE);
+        warmCache.get(PROPS, DT, steps);
+        coldCache = new OscillatorRunCache(service, 0, 0);
+    }
+
+    @Benchmark
+    public Double[][] analytic() {
+        var a = PROPS.amplitude();
+        var totE = service.totalEnergy(PROPS);
+        return service.extractTrend(service.analytic(PROPS, DT), steps, x -> x, e -> e / (totE / (a * a)), false);
+    }
+
+    @Benchmark
+    public Double[][] euler() {
+        var a = PROPS.amplitude();
+        var totE = service.totalEnergy(PROPS);
+        return service.extractTrend(service.euler(PROPS, DT), steps, x -> x / a, e -> e / totE, false);
+    }
+
+    @Benchmark
+    public Double[][] leapfrog() {
+        var a = PROPS.amplitude();
+        var totE = service.totalEnergy(PROPS);
+        return service.extractTrend(service.leapfrog(PROPS, DT), steps, x -> x / a, e -> e / totE, true);
+    }
+
+    /**
+     * Fills one trend kept across invocations, without boxing.
+     */
+    @Benchmark
+    public Trend integrate() {
+        service.integrate(PROPS, DT, integrator, trend);
+        return trend;
+    }
+
+    /**
+     * The analytic, Euler and leapfrog trends and their reverse runs, as the
+     * view computes them on a cache miss.
+     */
+    @Benchmark
+    public OscillatorRun run() {
+        return service.run(PROPS, DT, steps);
+    }
+
+    @Benchmark
+    public OscillatorRun cacheHit() {
+        return warmCache.get(PROPS, DT, steps);
+    }
+
+    /**
+     * A run through a cache that keeps nothing, the cost of a miss over {@link #run()}.
+     */
+    @Benchmark
+    public OscillatorRun cacheMiss() {
+        return coldCache.get(PROPS, DT, steps);
+    }
+
+    @Benchmark
+    public SweepResult sweep() {
+        return service.sweep(GRID, Integrator::positionVerlet, steps);
+    }
+}
@@ -0,0 +1,31 @@
+package com.szymonharabasz.complexsystems.api;
+
+/**
+ * Parameters of a gas job: {@code n} Lennard-Jones particles in a box of side
+ * {@code l}, run for {@code steps} steps and sampled every {@code sampleEvery}.
+ * Positions are only included in the frames on request, and a missing seed
+ * means a random one.
+ */
+public record GasJobRequest(
+    int n, double l, double v0, double m, double epsilon, double sigma, double dt,
+    int steps, int sampleEvery, String integrator, Long seed, boolean includePositions
+) {
+
+    static final int OBSERVABLES = 4;
+
+    void validate() {
+        if (n < 1 || !(l > 0) || !(v0 >= 0) || !(m > 0) || !(epsilon > 0) || !(sigma > 0) || !(dt > 0)
+            || steps < 0 || sampleEvery < 1) {
+            throw new IllegalArgumentException("Invalid gas job: n = " + n + ", l = " + l + ", v0 = " + v0
+                + ", m = " + m + ", epsilon = " + epsilon + ", sigma = " + sigma + ", dt = " + dt
+                + ", steps = " + steps + ", sampleEvery = " + sampleEvery);
+        }
+    }
+
+    /**
+     * Estimated memory taken by one sampled frame.
+     */
+    long frameBytes() {
+        return JobFrame.sizeInBytes(OBSERVABLES, includePositions ? n : 0);
+    }
+}
@@ -0,0 +1,101 @@
+package com.szymonharabasz.complexsystems.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+
+/**
+ * A submitted simulation with the frames sampled so far. Subscribers get the
+ * frames already sampled first and then the new ones as they come, until the
+ * job ends.
+ */
+public final class Job {
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    private final String id;
+    private final String kind;
+    private final List<JobFrame> frames = new ArrayList<>();
+    private final List<MultiEmitter<? super JobFrame>> subscribers = new ArrayList<>();
+    private State state = State.QUEUED;
+    private String error;
+    private long bytes;
+    private volatile boolean cancelRequested;
+
+    Job(String id, String kind) {
+        this.id = id;
+        this.kind = kind;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public synchronized JobStatus status() {
+        return new JobStatus(id, kind, state, frames.size(), error);
+    }
+
+    public synchronized boolean isFinished() {
+        return state == State.DONE || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    public synchronized List<JobFrame> frames() {
+        return List.copyOf(frames);
+    }
+
+    /**
+     * Estimated memory taken by the frames kept.
+     */
+    synchronized long sizeInBytes() {
+        return bytes;
+    }
+
+    public Multi<JobFrame> stream() {
+        return Multi.createFrom().emitter(emitter -> {
+            synchronized (this) {
+                frames.forEach(emitter::emit);
+                if (isFinished()) {
+                    emitter.complete();
+                    return;
+                }
+                subscribers.add(emitter);
+            }
+            emitter.onTermination(() -> {
+                synchronized (this) {
+                    subscribers.remove(emitter);
+                }
+            });
+        });
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    boolean cancelRequested() {
+        return cancelRequested;
+    }
+
+    synchronized void start() {
+        state = State.RUNNING;
+    }
+
+    synchronized void add(JobFrame frame) {
+        frames.add(frame);
+        bytes += frame.sizeInBytes();
+        for (var subscriber : subscribers) {
+            subscriber.emit(frame);
+        }
+    }
+
+    synchronized void finish(State finalState, String message) {
+        state = finalState;
+        error = message;
+        for (var subscriber : new ArrayList<>(subscribers)) {
+            subscriber.complete();
+        }
+        subscribers.clear();
+    }
+}
@@ -0,0 +1,27 @@
+package com.szymonharabasz.complexsystems.api;
+
+import java.util.Map;
+
+/**
+ * One sample of a job: its observables by name and, for gas jobs that asked
+ * for them, the particle positions as {@code [xs, ys]}.
+ */
+public record JobFrame(long step, double time, Map<String, Double> observables, double[][] positions) {
+
+    private static final long FRAME_BYTES = 64;
+    private static final long OBSERVABLE_BYTES = 64;
+    private static final long ARRAY_BYTES = 24;
+
+    /**
+     * Rough estimate of the heap taken by a frame with the given number of
+     * observables and of particle positions, map entries and boxing included.
+     */
+    static long sizeInBytes(int observables, int particles) {
+        var positionBytes = particles > 0 ? 3 * ARRAY_BYTES + 2L * Double.BYTES * particles : 0;
+        return FRAME_BYTES + observables * OBSERVABLE_BYTES + positionBytes;
+    }
+
+    long sizeInBytes() {
+        return sizeInBytes(observables.size(), positions == null ? 0 : positions[0].length);
+    }
+}
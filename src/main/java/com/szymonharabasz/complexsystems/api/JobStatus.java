@@ -0,0 +1,4 @@
+package com.szymonharabasz.complexsystems.api;
+
+public record JobStatus(String id, String kind, Job.State state, int frames, String error) {
+}
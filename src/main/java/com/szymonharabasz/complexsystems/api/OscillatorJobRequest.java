@@ -0,0 +1,30 @@
+package com.szymonharabasz.complexsystems.api;
+
+/**
+ * Parameters of an oscillator job, with the damping {@code b} relative to
+ * critical damping as in the views.
+ */
+public record OscillatorJobRequest(
+    double m, double k, double b, double r0, double v0, double dt, int steps, int sampleEvery, String integrator
+) {
+
+    static final int OBSERVABLES = 3;
+
+    void validate() {
+        if (!(m > 0) || !(k > 0) || b < 0 || !(dt > 0) || steps < 0 || sampleEvery < 1) {
+            throw new IllegalArgumentException("Invalid oscillator job: m = " + m + ", k = " + k + ", b = " + b
+                + ", dt = " + dt + ", steps = " + steps + ", sampleEvery = " + sampleEvery);
+        }
+    }
+
+    long frameBytes() {
+        return JobFrame.sizeInBytes(OBSERVABLES, 0);
+    }
+
+    /**
+     * Memory taken by the whole trajectory, integrated before it is sampled.
+     */
+    long trajectoryBytes() {
+        return 3L * Double.BYTES * (steps + 1L);
+    }
+}
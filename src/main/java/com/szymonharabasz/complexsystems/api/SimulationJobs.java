@@ -0,0 +1,281 @@
+package com.szymonharabasz.complexsystems.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxService;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.InitialConditions;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.LennardJones;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.ParticleStore;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.StepResult;
+import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.HarmonicOscillatorProperties;
+import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.HarmonicOscillatorService;
+import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.Trend;
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.Integrator;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Runs headless simulation jobs on a bounded pool of worker threads, separate
+ * from the scheduler of the views. Jobs beyond the queue capacity are
+ * refused, and only the most recent finished jobs are kept for fetching, as
+ * many as fit both the count and the memory budget. Jobs larger than the
+ * configured caps on particles, steps, frames and memory are refused when
+ * submitted, so that every job accepted fits in a known amount of memory.
+ */
+@ApplicationScoped
+public class SimulationJobs {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimulationJobs.class);
+
+    @Inject
+    @ConfigProperty(name = "simulation.jobs.threads")
+    Optional<Integer> threads;
+
+    @Inject
+    @ConfigProperty(name = "simulation.jobs.max-queued", defaultValue = "16")
+    int maxQueued;
+
+    @Inject
+    @ConfigProperty(name = "simulation.jobs.retained", defaultValue = "100")
+    int retained;
+
+    @Inject
+    @ConfigProperty(name = "simulation.jobs.retained-bytes", defaultValue = "268435456")
+    long retainedBytes;
+
+    @Inject
+    @ConfigProperty(name = "simulation.jobs.max-particles", defaultValue = "10000")
+    int maxParticles;
+
+    @Inject
+    @ConfigProperty(name = "simulation.jobs.max-steps", defaultValue = "1000000")
+    int maxSteps;
+
+    @Inject
+    @ConfigProperty(name = "simulation.jobs.max-frames", defaultValue = "10000")
+    int maxFrames;
+
+    @Inject
+    @ConfigProperty(name = "simulation.jobs.max-job-bytes", defaultValue = "67108864")
+    long maxJobBytes;
+
+    @Inject
+    GasInBoxService gasInBoxService;
+
+    @Inject
+    HarmonicOscillatorService harmonicOscillatorService;
+
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        var poolSize = threads.orElse(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        var threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+            poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxQueued),
+            runnable -> {
+                var thread = new Thread(runnable, "simulation-job-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        LOGGER.info("Simulation jobs run on {} threads with up to {} queued", poolSize, maxQueued);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the request is invalid or above the caps
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public Job submitGas(GasJobRequest request) {
+        request.validate();
+        if (request.n() > maxParticles) {
+            throw new IllegalArgumentException(
+                "Refused gas job of " + request.n() + " particles, at most " + maxParticles + " are allowed");
+        }
+        checkSize("gas", request.steps(), request.sampleEvery(), request.frameBytes(), 0);
+        var integrator = Integrator.named(Optional.ofNullable(request.integrator()).orElse("leapfrog"));
+        return submit("gas", job -> runGas(job, request, integrator));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the request is invalid or above the caps
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public Job submitOscillator(OscillatorJobRequest request) {
+        request.validate();
+        checkSize("oscillator", request.steps(), request.sampleEvery(), request.frameBytes(), request.trajectoryBytes());
+        var integrator = Integrator.named(Optional.ofNullable(request.integrator()).orElse("leapfrog"));
+        return submit("oscillator", job -> runOscillator(job, request, integrator));
+    }
+
+    public synchronized Optional<Job> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public synchronized List<JobStatus> list() {
+        var statuses = new ArrayList<JobStatus>(jobs.size());
+        jobs.values().forEach(job -> statuses.add(job.status()));
+        return statuses;
+    }
+
+    public Optional<Job> cancel(String id) {
+        var job = find(id);
+        job.ifPresent(Job::requestCancel);
+        return job;
+    }
+
+    private void checkSize(String kind, int steps, int sampleEvery, long frameBytes, long workingBytes) {
+        if (steps > maxSteps) {
+            throw new IllegalArgumentException(
+                "Refused " + kind + " job of " + steps + " steps, at most " + maxSteps + " are allowed");
+        }
+        long frames = steps / sampleEvery + 1L;
+        if (frames > maxFrames) {
+            throw new IllegalArgumentException(
+                "Refused " + kind + " job of " + frames + " frames, at most " + maxFrames + " are allowed");
+        }
+        long bytes = frames * frameBytes + workingBytes;
+        if (bytes > maxJobBytes) {
+            throw new IllegalArgumentException(
+                "Refused " + kind + " job taking about " + bytes + " bytes, at most " + maxJobBytes + " are allowed");
+        }
+    }
+
+    private interface JobBody {
+        void run(Job job);
+    }
+
+    private Job submit(String kind, JobBody body) {
+        var job = new Job(UUID.randomUUID().toString(), kind);
+        synchronized (this) {
+            jobs.put(job.id(), job);
+            evictFinished();
+        }
+        try {
+            executor.execute(() -> run(job, body));
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                jobs.remove(job.id());
+            }
+            throw new RejectedExecutionException("Too many simulation jobs queued, " + kind + " job refused", e);
+        }
+        return job;
+    }
+
+    private void run(Job job, JobBody body) {
+        if (job.cancelRequested()) {
+            job.finish(Job.State.CANCELLED, null);
+            return;
+        }
+        job.start();
+        try {
+            body.run(job);
+            job.finish(job.cancelRequested() ? Job.State.CANCELLED : Job.State.DONE, null);
+        } catch (RuntimeException e) {
+            LOGGER.error("Simulation job {} failed", job.id(), e);
+            job.finish(Job.State.FAILED, e.getMessage());
+        } finally {
+            synchronized (this) {
+                evictFinished();
+            }
+        }
+    }
+
+    /**
+     * Drops the oldest finished jobs until at most {@code retained} of them
+     * remain and their frames fit in {@code retainedBytes}.
+     */
+    private void evictFinished() {
+        int finished = 0;
+        long finishedBytes = 0;
+        for (var job : jobs.values()) {
+            if (job.isFinished()) {
+                ++finished;
+                finishedBytes += job.sizeInBytes();
+            }
+        }
+        var iterator = jobs.values().iterator();
+        while ((finished > retained || finishedBytes > retainedBytes) && iterator.hasNext()) {
+            var job = iterator.next();
+            if (job.isFinished()) {
+                iterator.remove();
+                --finished;
+                finishedBytes -= job.sizeInBytes();
+            }
+        }
+    }
+
+    private void runGas(Job job, GasJobRequest request, Integrator integrator) {
+        var random = request.seed() == null ? new SplittableRandom() : new SplittableRandom(request.seed());
+        var placement = InitialConditions.Placement.forPackingFraction(
+            InitialConditions.packingFraction(request.n(), request.l(), 2 * request.sigma()));
+        var initial = gasInBoxService.initialize(
+            request.n(), request.l(), request.v0(), request.sigma(), placement, random);
+        var system = gasInBoxService.system(
+            ParticleStore.fromParticles(initial), request.l(), request.m(), LennardJones.of(request.epsilon(), request.sigma()));
+        system.setWithEnergy(true);
+        system.computeForces();
+        job.add(gasFrame(0, 0.0, system.observables(), system.store(), request.includePositions()));
+        for (int step = 1; step <= request.steps() && !job.cancelRequested(); ++step) {
+            boolean sample = step % request.sampleEvery() == 0;
+            system.setWithEnergy(sample);
+            integrator.step(system, request.dt());
+            if (sample) {
+                job.add(gasFrame(step, step * request.dt(), system.observables(), system.store(), request.includePositions()));
+            }
+        }
+    }
+
+    private static JobFrame gasFrame(
+        long step, double time,
+        StepResult observables,
+        ParticleStore store, boolean includePositions
+    ) {
+        var values = new HashMap<String, Double>();
+        values.put("kineticEnergy", observables.kineticEnergy());
+        values.put("potentialEnergy", observables.potentialEnergy());
+        values.put("totalEnergy", observables.totalEnergy());
+        values.put("pressure", observables.pressure());
+        double[][] positions = includePositions
+            ? new double[][] {store.x().clone(), store.y().clone()}
+            : null;
+        return new JobFrame(step, time, values, positions);
+    }
+
+    private void runOscillator(Job job, OscillatorJobRequest request, Integrator integrator) {
+        var oscillator = new HarmonicOscillatorProperties(request.m(), request.k(), request.b(), request.r0(), request.v0());
+        var trend = Trend.ofLength(request.steps() + 1);
+        harmonicOscillatorService.integrate(oscillator, request.dt(), integrator, trend);
+        for (int step = 0; step <= request.steps() && !job.cancelRequested(); step += request.sampleEvery()) {
+            var values = new HashMap<String, Double>();
+            values.put("x", trend.x()[step]);
+            values.put("v", trend.v()[step]);
+            values.put("energy", trend.energy()[step]);
+            job.add(new JobFrame(step, step * request.dt(), values, null));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.szymonharabasz.complexsystems.api;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.jboss.resteasy.reactive.RestMediaType;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+
+import io.smallrye.mutiny.Multi;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.ServiceUnavailableException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Headless access to the simulations, for scripts and batch runs that do
+ * not need the views. A job is submitted with a POST, its frames are then
+ * fetched at once when it is done or streamed while it runs, as server-sent
+ * events or newline-delimited JSON.
+ */
+@Path("/api/jobs")
+@Produces(MediaType.APPLICATION_JSON)
+public class SimulationResource {
+
+    private static final Long RETRY_AFTER_SECONDS = 5L;
+
+    @Inject
+    SimulationJobs jobs;
+
+    @POST
+    @Path("/gas")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response submitGas(GasJobRequest request) {
+        requireBody(request);
+        return accepted(() -> jobs.submitGas(request));
+    }
+
+    @POST
+    @Path("/oscillator")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response submitOscillator(OscillatorJobRequest request) {
+        requireBody(request);
+        return accepted(() -> jobs.submitOscillator(request));
+    }
+
+    @GET
+    public List<JobStatus> list() {
+        return jobs.list();
+    }
+
+    @GET
+    @Path("/{id}")
+    public JobStatus status(@PathParam("id") String id) {
+        return job(id).status();
+    }
+
+    @GET
+    @Path("/{id}/frames")
+    public List<JobFrame> frames(@PathParam("id") String id) {
+        return job(id).frames();
+    }
+
+    @GET
+    @Path("/{id}/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<JobFrame> stream(@PathParam("id") String id) {
+        return job(id).stream();
+    }
+
+    @GET
+    @Path("/{id}/stream")
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<JobFrame> streamLines(@PathParam("id") String id) {
+        return job(id).stream();
+    }
+
+    @DELETE
+    @Path("/{id}")
+    public JobStatus cancel(@PathParam("id") String id) {
+        return jobs.cancel(id).orElseThrow(() -> notFound(id)).status();
+    }
+
+    private interface Submission {
+        Job submit();
+    }
+
+    private static void requireBody(Object request) {
+        if (request == null) {
+            throw new BadRequestException("Missing job request");
+        }
+    }
+
+    private static Response accepted(Submission submission) {
+        try {
+            return Response.accepted(submission.submit().status()).build();
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException(RETRY_AFTER_SECONDS, e);
+        }
+    }
+
+    private Job job(String id) {
+        return jobs.find(id).orElseThrow(() -> notFound(id));
+    }
+
+    private static NotFoundException notFound(String id) {
+        return new NotFoundException("No simulation job " + id);
+    }
+}
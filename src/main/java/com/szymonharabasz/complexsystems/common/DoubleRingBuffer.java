@@ -0,0 +1,63 @@
+package com.szymonharabasz.complexsystems.common;
+
+/**
+ * Fixed-capacity ring of primitive doubles for rolling observables. Once
+ * full, each added value replaces the oldest one in constant time.
+ */
+public class DoubleRingBuffer {
+
+    private final double[] values;
+    private int start;
+    private int size;
+
+    public DoubleRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        this.values = new double[capacity];
+    }
+
+    public void add(double value) {
+        if (size < values.length) {
+            values[(start + size) % values.length] = value;
+            ++size;
+        } else {
+            values[start] = value;
+            start = (start + 1) % values.length;
+        }
+    }
+
+    /**
+     * The i-th value, counting from the oldest one.
+     */
+    public double get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " of " + size);
+        }
+        return values[(start + i) % values.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    /**
+     * Copies the values, oldest first, to the start of {@code destination}
+     * and returns their number.
+     */
+    public int copyTo(double[] destination) {
+        int head = Math.min(size, values.length - start);
+        System.arraycopy(values, start, destination, 0, head);
+        System.arraycopy(values, 0, destination, head, size - head);
+        return size;
+    }
+}
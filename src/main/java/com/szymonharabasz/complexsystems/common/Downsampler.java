@@ -0,0 +1,65 @@
+package com.szymonharabasz.complexsystems.common;
+
+/**
+ * Reduces a line series to a bounded number of points while keeping its
+ * visual shape, using Largest-Triangle-Three-Buckets (Steinarsson, 2013):
+ * the first and last points are kept, and from each of the buckets in
+ * between the point spanning the largest triangle with the previously
+ * chosen point and the average of the next bucket.
+ */
+public class Downsampler {
+    private Downsampler() { }
+
+    /**
+     * Downsamples the first {@code length} points of {@code xs}, {@code ys} to
+     * at most {@code threshold} points written to {@code outXs}, {@code outYs},
+     * and returns their number. Series not longer than the threshold are copied.
+     */
+    public static int lttb(double[] xs, double[] ys, int length, int threshold, double[] outXs, double[] outYs) {
+        if (threshold < 3) {
+            throw new IllegalArgumentException("At least 3 points are needed, got " + threshold);
+        }
+        if (length <= threshold) {
+            System.arraycopy(xs, 0, outXs, 0, length);
+            System.arraycopy(ys, 0, outYs, 0, length);
+            return length;
+        }
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        int selected = 0;
+        int count = 0;
+        outXs[count] = xs[0];
+        outYs[count++] = ys[0];
+        for (int bucket = 0; bucket < threshold - 2; ++bucket) {
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, length);
+            double averageX = 0.0;
+            double averageY = 0.0;
+            for (int i = nextStart; i < nextEnd; ++i) {
+                averageX += xs[i];
+                averageY += ys[i];
+            }
+            averageX /= nextEnd - nextStart;
+            averageY /= nextEnd - nextStart;
+
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = nextStart;
+            double maxArea = -1.0;
+            int chosen = start;
+            for (int i = start; i < end; ++i) {
+                double area = Math.abs(
+                    (xs[selected] - averageX) * (ys[i] - ys[selected])
+                    - (xs[selected] - xs[i]) * (averageY - ys[selected]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            outXs[count] = xs[chosen];
+            outYs[count++] = ys[chosen];
+            selected = chosen;
+        }
+        outXs[count] = xs[length - 1];
+        outYs[count++] = ys[length - 1];
+        return count;
+    }
+}
@@ -0,0 +1,88 @@
+package com.szymonharabasz.complexsystems.common;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the frames sent to one viewer by its acknowledgements. At most
+ * {@value #WINDOW} frames may be unacknowledged at a time, and frames are
+ * spaced by the smoothed round trip divided by the window, so that a viewer
+ * on a slow link or a busy browser is sent fewer frames instead of queueing
+ * them. Frames unacknowledged for longer than the timeout are taken as lost
+ * and count as a round trip of the full timeout, which backs off the rate.
+ * Each frame sent gets a sequence number that its acknowledgement carries,
+ * so a late acknowledgement of a lost frame is ignored instead of being
+ * taken for that of a later frame.
+ * <p>
+ * Times are in nanoseconds of {@link System#nanoTime()}; not thread-safe.
+ */
+final class FramePacer {
+
+    static final int WINDOW = 2;
+    static final long MIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    static final long MAX_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    static final long ACK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final double SMOOTHING = 0.125;
+
+    private record Sent(long sequence, long sentAt) { }
+
+    private final ArrayDeque<Sent> unacknowledged = new ArrayDeque<>(WINDOW);
+    private long nextSequence;
+    private double smoothedRoundTripNanos = Double.NaN;
+    private long lastSentNanos;
+    private boolean sentAny;
+
+    boolean ready(long now) {
+        while (!unacknowledged.isEmpty() && now - unacknowledged.peekFirst().sentAt() > ACK_TIMEOUT_NANOS) {
+            unacknowledged.pollFirst();
+            sample(ACK_TIMEOUT_NANOS);
+        }
+        return unacknowledged.size() < WINDOW && (!sentAny || now - lastSentNanos >= intervalNanos());
+    }
+
+    /**
+     * @return the sequence number of the frame, for its acknowledgement
+     */
+    long sent(long now) {
+        var sequence = nextSequence++;
+        unacknowledged.addLast(new Sent(sequence, now));
+        lastSentNanos = now;
+        sentAny = true;
+        return sequence;
+    }
+
+    /**
+     * @return the round trip of the frame with the given sequence number, or
+     *         -1 if it is not awaiting acknowledgement, e.g. because it has
+     *         already timed out
+     */
+    long acknowledged(long sequence, long now) {
+        for (var frames = unacknowledged.iterator(); frames.hasNext(); ) {
+            var frame = frames.next();
+            if (frame.sequence() == sequence) {
+                frames.remove();
+                var roundTrip = now - frame.sentAt();
+                sample(roundTrip);
+                return roundTrip;
+            }
+        }
+        return -1;
+    }
+
+    long intervalNanos() {
+        if (Double.isNaN(smoothedRoundTripNanos)) {
+            return MIN_INTERVAL_NANOS;
+        }
+        return Math.max(MIN_INTERVAL_NANOS, Math.min(MAX_INTERVAL_NANOS, (long) (smoothedRoundTripNanos / WINDOW)));
+    }
+
+    double smoothedRoundTripMillis() {
+        return smoothedRoundTripNanos / 1e6;
+    }
+
+    private void sample(long roundTripNanos) {
+        smoothedRoundTripNanos = Double.isNaN(smoothedRoundTripNanos)
+            ? roundTripNanos
+            : smoothedRoundTripNanos + SMOOTHING * (roundTripNanos - smoothedRoundTripNanos);
+    }
+}
@@ -0,0 +1,28 @@
+package com.szymonharabasz.complexsystems.common;
+
+/**
+ * A simulation stepped by the {@link SimulationRegistry} on behalf of all
+ * the views showing it. {@link #next} is called once per tick from one
+ * thread at a time.
+ */
+public interface FrameSource<F> {
+
+    /**
+     * Called once before the first tick, e.g. to start background work.
+     */
+    default void start(SimulationScheduler scheduler) { }
+
+    /**
+     * Advances the simulation by one tick.
+     *
+     * @param frameWanted whether any viewer is ready for a frame; when none
+     *        is, the source can skip building one
+     * @return the frame to send to the viewers, or null if there is none this tick
+     */
+    F next(boolean frameWanted);
+
+    /**
+     * Called once when the last viewer has left.
+     */
+    default void stop() { }
+}
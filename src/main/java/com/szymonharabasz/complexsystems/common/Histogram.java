@@ -0,0 +1,91 @@
+package com.szymonharabasz.complexsystems.common;
+
+/**
+ * Equal-width bins over [min, max) with separate counts of the values below
+ * and above the range. Histograms with the same binning can be merged.
+ */
+public class Histogram {
+
+    private final double min;
+    private final double max;
+    private final double width;
+    private final long[] counts;
+    private long underflow;
+    private long overflow;
+
+    public Histogram(double min, double max, int bins) {
+        if (bins < 1 || !(max > min)) {
+            throw new IllegalArgumentException("Invalid binning: " + bins + " bins over [" + min + ", " + max + ")");
+        }
+        this.min = min;
+        this.max = max;
+        this.width = (max - min) / bins;
+        this.counts = new long[bins];
+    }
+
+    public void add(double value) {
+        if (value < min) {
+            ++underflow;
+        } else if (value >= max) {
+            ++overflow;
+        } else {
+            counts[Math.min(counts.length - 1, (int) ((value - min) / width))]++;
+        }
+    }
+
+    public Histogram merge(Histogram other) {
+        if (other.counts.length != counts.length || other.min != min || other.max != max) {
+            throw new IllegalArgumentException("Cannot merge histograms with different binning");
+        }
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] += other.counts[i];
+        }
+        underflow += other.underflow;
+        overflow += other.overflow;
+        return this;
+    }
+
+    public int bins() {
+        return counts.length;
+    }
+
+    public double binWidth() {
+        return width;
+    }
+
+    public double binCenter(int bin) {
+        return min + (bin + 0.5) * width;
+    }
+
+    public long count(int bin) {
+        return counts[bin];
+    }
+
+    public long underflow() {
+        return underflow;
+    }
+
+    public long overflow() {
+        return overflow;
+    }
+
+    /**
+     * All values added, including those outside the range.
+     */
+    public long total() {
+        long total = underflow + overflow;
+        for (var count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Fraction of all values per unit length in the bin, so that the densities
+     * of the bins integrate to the fraction of values inside the range.
+     */
+    public double density(int bin) {
+        long total = total();
+        return total == 0 ? 0.0 : counts[bin] / (total * width);
+    }
+}
@@ -1,5 +1,16 @@
 package com.szymonharabasz.complexsystems.common;
 
-public record LabelledData(String label, Double[] data) {
+public record LabelledData(String label, double[] data) {
 
+    public LabelledData(String label, Double[] data) {
+        this(label, unbox(data));
+    }
+
+    private static double[] unbox(Double[] data) {
+        var result = new double[data.length];
+        for (int i = 0; i < data.length; ++i) {
+            result[i] = data[i];
+        }
+        return result;
+    }
 }
@@ -0,0 +1,80 @@
+package com.szymonharabasz.complexsystems.common;
+
+/**
+ * Count, mean, variance and range of a stream of values in constant memory,
+ * with Welford's update. Two accumulators over separate parts of a stream can
+ * be merged, so that parts can be accumulated in parallel.
+ */
+public class RunningStatistics {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        ++count;
+        var delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds the values accumulated by {@code other} to this one.
+     */
+    public RunningStatistics merge(RunningStatistics other) {
+        if (other.count == 0) {
+            return this;
+        }
+        long total = count + other.count;
+        var delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Unbiased sample variance, NaN for fewer than two values.
+     */
+    public double variance() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * Standard deviation of the mean, assuming uncorrelated values.
+     */
+    public double standardError() {
+        return Math.sqrt(variance() / count);
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.6g ± %.2g (n = %d)", mean(), standardError(), count);
+    }
+}
@@ -0,0 +1,47 @@
+package com.szymonharabasz.complexsystems.common;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A simulation running on the {@link SimulationScheduler}. Cancelling stops
+ * further steps and releases the simulation's slot; it is safe to cancel
+ * more than once.
+ */
+public class SimulationHandle {
+
+    private final String name;
+    private final Runnable onCancel;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private volatile ScheduledFuture<?> future;
+
+    SimulationHandle(String name, Runnable onCancel) {
+        this.name = name;
+        this.onCancel = onCancel;
+    }
+
+    void setFuture(ScheduledFuture<?> future) {
+        this.future = future;
+        if (cancelled.get()) {
+            future.cancel(false);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public void cancel() {
+        if (cancelled.compareAndSet(false, true)) {
+            var scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            onCancel.run();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.szymonharabasz.complexsystems.common;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Micrometer meters of the simulations, exposed on the Prometheus endpoint
+ * {@code /q/metrics}. Views look up their {@link Meters} once and record into
+ * them from the stepping thread; the step rate is the rate of the
+ * {@code simulation.steps} timer count.
+ */
+@ApplicationScoped
+public class SimulationMetrics {
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    SimulationScheduler simulationScheduler;
+
+    @PostConstruct
+    void registerGauges() {
+        Gauge.builder("simulation.active", simulationScheduler, SimulationScheduler::activeSimulations)
+            .description("Simulations currently scheduled")
+            .register(registry);
+        Gauge.builder("simulation.queue.depth", simulationScheduler, SimulationScheduler::queueDepth)
+            .description("Simulation steps overdue for execution")
+            .register(registry);
+    }
+
+    /**
+     * Meters tagged with the name of the simulation or view.
+     */
+    public Meters forSimulation(String simulation) {
+        return new Meters(
+            Timer.builder("simulation.steps")
+                .description("Time per simulation step")
+                .tag("simulation", simulation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry),
+            Counter.builder("simulation.pair.interactions")
+                .description("Particle pairs evaluated by the force computation")
+                .tag("simulation", simulation)
+                .register(registry),
+            Counter.builder("simulation.frames.dropped")
+                .description("Frames not pushed to a viewer that was not ready for them")
+                .tag("simulation", simulation)
+                .register(registry),
+            Timer.builder("ui.push")
+                .description("Time from requesting UI access to the end of the push")
+                .tag("simulation", simulation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry),
+            DistributionSummary.builder("ui.push.payload")
+                .description("Estimated size of the chart data of a push")
+                .baseUnit("bytes")
+                .tag("simulation", simulation)
+                .register(registry),
+            Timer.builder("ui.push.roundtrip")
+                .description("Time from sending a frame to the browser acknowledging that it was drawn")
+                .tag("simulation", simulation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry),
+            Timer.builder("simulation.recompute")
+                .description("Time to recompute a view's data after a parameter change")
+                .tag("simulation", simulation)
+                .register(registry));
+    }
+
+    public static final class Meters {
+
+        private final Timer steps;
+        private final Counter pairInteractions;
+        private final Counter framesDropped;
+        private final Timer push;
+        private final DistributionSummary payload;
+        private final Timer roundTrip;
+        private final Timer recompute;
+
+        Meters(
+            Timer steps, Counter pairInteractions, Counter framesDropped, Timer push,
+            DistributionSummary payload, Timer roundTrip, Timer recompute
+        ) {
+            this.steps = steps;
+            this.pairInteractions = pairInteractions;
+            this.framesDropped = framesDropped;
+            this.push = push;
+            this.payload = payload;
+            this.roundTrip = roundTrip;
+            this.recompute = recompute;
+        }
+
+        public void recordStep(long nanos) {
+            steps.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void countPairs(long pairs) {
+            pairInteractions.increment(pairs);
+        }
+
+        public void frameDropped() {
+            framesDropped.increment();
+        }
+
+        public void recordPush(long nanos, long payloadBytes) {
+            push.record(nanos, TimeUnit.NANOSECONDS);
+            payload.record(payloadBytes);
+        }
+
+        public void recordRoundTrip(long nanos) {
+            roundTrip.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void recordRecompute(long nanos) {
+            recompute.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.szymonharabasz.complexsystems.common;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Runs one simulation per distinct set of parameters and broadcasts its
+ * frames to every view that subscribed with the same key, so that visitors
+ * of the same page share the CPU of one run. A simulation is started by its
+ * first subscriber and stopped when the last one closes its subscription.
+ * <p>
+ * Frames are handed to subscribers on the stepping thread, paced per
+ * subscriber by a {@link FramePacer} from its acknowledgements. A frame that
+ * comes while its subscriber is not ready waits in a single slot, replaced
+ * by any newer frame, so a slow viewer neither holds up the simulation nor
+ * the other viewers, and is never more than one frame behind once ready.
+ */
+@ApplicationScoped
+public class SimulationRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimulationRegistry.class);
+
+    @Inject
+    SimulationScheduler scheduler;
+
+    @Inject
+    SimulationMetrics metrics;
+
+    private final Map<Object, Shared<?>> simulations = new HashMap<>();
+
+    /**
+     * Receives the frames of a shared simulation. It must not block, and it
+     * runs {@code acknowledge} once the frame has been shown, e.g. when the
+     * browser reports having drawn it. Frames not acknowledged within two
+     * seconds are taken as lost.
+     */
+    public interface FrameHandler<F> {
+        void onFrame(F frame, Runnable acknowledge);
+    }
+
+    /**
+     * Subscribes to the simulation with the given key, starting it with a
+     * source from {@code factory} if it is not running yet. Keys must be
+     * values, e.g. records of the parameters, and one key must always be
+     * used with the same type of frames.
+     *
+     * @throws RejectedExecutionException if a new simulation would exceed the scheduler's limit
+     */
+    public synchronized <F> Subscription subscribe(
+        String name, Object key, long period, TimeUnit unit,
+        Supplier<? extends FrameSource<F>> factory, FrameHandler<? super F> handler
+    ) {
+        @SuppressWarnings("unchecked")
+        var shared = (Shared<F>) simulations.get(key);
+        if (shared == null || shared.handle.isCancelled()) {
+            if (shared != null) {
+                LOGGER.warn("Simulation {} had stopped, restarting it", name);
+                shared.stop();
+            }
+            shared = start(name, period, unit, factory.get());
+            simulations.put(key, shared);
+        }
+        var subscriber = new Subscriber<F>(handler, metrics.forSimulation(name));
+        shared.subscribers.add(subscriber);
+        LOGGER.info("Simulation {} has {} viewers", name, shared.subscribers.size());
+        return new Subscription(key, shared, subscriber);
+    }
+
+    /**
+     * Number of simulations running for the views.
+     */
+    public synchronized int simulations() {
+        return simulations.size();
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        simulations.values().forEach(Shared::stop);
+        simulations.clear();
+    }
+
+    private <F> Shared<F> start(String name, long period, TimeUnit unit, FrameSource<F> source) {
+        source.start(scheduler);
+        var shared = new Shared<>(name, source);
+        try {
+            shared.handle = scheduler.schedule(name, shared::tick, period, period, unit);
+        } catch (RejectedExecutionException e) {
+            source.stop();
+            throw e;
+        }
+        return shared;
+    }
+
+    private synchronized void unsubscribe(Object key, Shared<?> shared, Subscriber<?> subscriber) {
+        if (!shared.subscribers.remove(subscriber)) {
+            return;
+        }
+        LOGGER.info("Simulation {} has {} viewers", shared.name, shared.subscribers.size());
+        if (shared.subscribers.isEmpty()) {
+            shared.stop();
+            simulations.remove(key, shared);
+        }
+    }
+
+    /**
+     * A view's interest in a shared simulation; closing it more than once is harmless.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final Object key;
+        private final Shared<?> shared;
+        private final Subscriber<?> subscriber;
+
+        private Subscription(Object key, Shared<?> shared, Subscriber<?> subscriber) {
+            this.key = key;
+            this.shared = shared;
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Number of views currently subscribed to the same simulation.
+         */
+        public int viewers() {
+            return shared.subscribers.size();
+        }
+
+        /**
+         * Smoothed time from sending a frame to its acknowledgement, NaN before the first one.
+         */
+        public double roundTripMillis() {
+            return subscriber.roundTripMillis();
+        }
+
+        @Override
+        public void close() {
+            unsubscribe(key, shared, subscriber);
+        }
+    }
+
+    private static final class Shared<F> {
+
+        private final String name;
+        private final FrameSource<F> source;
+        private final List<Subscriber<F>> subscribers = new CopyOnWriteArrayList<>();
+        private volatile SimulationHandle handle;
+
+        Shared(String name, FrameSource<F> source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        void tick() {
+            var now = System.nanoTime();
+            boolean frameWanted = false;
+            for (var subscriber : subscribers) {
+                frameWanted |= subscriber.ready(now);
+            }
+            var frame = source.next(frameWanted);
+            for (var subscriber : subscribers) {
+                if (frame != null) {
+                    subscriber.offer(frame);
+                } else {
+                    subscriber.flush();
+                }
+            }
+        }
+
+        void stop() {
+            handle.cancel();
+            source.stop();
+        }
+    }
+
+    private static final class Subscriber<F> {
+
+        private record Delivery<F>(F frame, long sequence) { }
+
+        private final FrameHandler<? super F> handler;
+        private final SimulationMetrics.Meters meters;
+        private final FramePacer pacer = new FramePacer();
+        private F pending;
+
+        Subscriber(FrameHandler<? super F> handler, SimulationMetrics.Meters meters) {
+            this.handler = handler;
+            this.meters = meters;
+        }
+
+        synchronized boolean ready(long now) {
+            return pacer.ready(now);
+        }
+
+        synchronized double roundTripMillis() {
+            return pacer.smoothedRoundTripMillis();
+        }
+
+        void offer(F frame) {
+            Delivery<F> ready;
+            synchronized (this) {
+                if (pending != null) {
+                    meters.frameDropped();
+                }
+                pending = frame;
+                ready = takeIfReady(System.nanoTime());
+            }
+            deliver(ready);
+        }
+
+        void flush() {
+            Delivery<F> ready;
+            synchronized (this) {
+                ready = takeIfReady(System.nanoTime());
+            }
+            deliver(ready);
+        }
+
+        private void acknowledge(long sequence) {
+            Delivery<F> ready;
+            synchronized (this) {
+                var now = System.nanoTime();
+                var roundTrip = pacer.acknowledged(sequence, now);
+                if (roundTrip >= 0) {
+                    meters.recordRoundTrip(roundTrip);
+                }
+                ready = takeIfReady(now);
+            }
+            deliver(ready);
+        }
+
+        private Delivery<F> takeIfReady(long now) {
+            if (pending == null || !pacer.ready(now)) {
+                return null;
+            }
+            var frame = pending;
+            pending = null;
+            return new Delivery<>(frame, pacer.sent(now));
+        }
+
+        private void deliver(Delivery<F> delivery) {
+            if (delivery == null) {
+                return;
+            }
+            var acknowledged = new AtomicBoolean();
+            Runnable acknowledge = () -> {
+                if (acknowledged.compareAndSet(false, true)) {
+                    acknowledge(delivery.sequence());
+                }
+            };
+            try {
+                handler.onFrame(delivery.frame(), acknowledge);
+            } catch (RuntimeException e) {
+                LOGGER.warn("A viewer failed to take a frame", e);
+                acknowledge.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.szymonharabasz.complexsystems.common;
+
+import java.util.Optional;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Owns the threads that step the simulations of all views. Simulations run
+ * as fixed-rate tasks on one bounded pool, and at most
+ * {@code simulation.scheduler.max-simulations} of them at a time; views
+ * cancel their handle when they are detached.
+ */
+@ApplicationScoped
+public class SimulationScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimulationScheduler.class);
+
+    @Inject
+    @ConfigProperty(name = "simulation.scheduler.threads")
+    Optional<Integer> threads;
+
+    @Inject
+    @ConfigProperty(name = "simulation.scheduler.max-simulations", defaultValue = "64")
+    int maxSimulations;
+
+    private final AtomicInteger activeSimulations = new AtomicInteger();
+    private ScheduledThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        var poolSize = threads.orElse(Runtime.getRuntime().availableProcessors());
+        var threadNumber = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(poolSize, runnable -> {
+            var thread = new Thread(runnable, "simulation-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        LOGGER.info("Simulation scheduler started with {} threads for up to {} simulations", poolSize, maxSimulations);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs {@code step} at a fixed rate until the returned handle is cancelled
+     * or the step throws.
+     *
+     * @throws RejectedExecutionException if the maximum number of simulations is already running
+     */
+    public SimulationHandle schedule(String name, Runnable step, long initialDelay, long period, TimeUnit unit) {
+        return start(name, step, task -> executor.scheduleAtFixedRate(task, initialDelay, period, unit));
+    }
+
+    /**
+     * Runs {@code step} with {@code delay} between the end of one run and the
+     * start of the next, until the returned handle is cancelled or the step
+     * throws. Unlike {@link #schedule}, a step that takes longer than the
+     * delay never falls behind, so it does not crowd out the tasks that came
+     * due while it ran.
+     *
+     * @throws RejectedExecutionException if the maximum number of simulations is already running
+     */
+    public SimulationHandle scheduleWithFixedDelay(String name, Runnable step, long initialDelay, long delay, TimeUnit unit) {
+        return start(name, step, task -> executor.scheduleWithFixedDelay(task, initialDelay, delay, unit));
+    }
+
+    private SimulationHandle start(String name, Runnable step, Function<Runnable, ScheduledFuture<?>> scheduling) {
+        if (activeSimulations.incrementAndGet() > maxSimulations) {
+            activeSimulations.decrementAndGet();
+            throw new RejectedExecutionException("Too many simulations running, " + name + " not started");
+        }
+        var handle = new SimulationHandle(name, activeSimulations::decrementAndGet);
+        try {
+            handle.setFuture(scheduling.apply(() -> {
+                try {
+                    step.run();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Simulation {} failed, stopping it", name, e);
+                    handle.cancel();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            handle.cancel();
+            throw e;
+        }
+        LOGGER.info("Simulation {} started, {} active", name, activeSimulations.get());
+        return handle;
+    }
+
+    public int activeSimulations() {
+        return activeSimulations.get();
+    }
+
+    public int maxSimulations() {
+        return maxSimulations;
+    }
+
+    /**
+     * Number of steps due but not yet picked up by a thread, a measure of
+     * how far behind the pool is.
+     */
+    public int queueDepth() {
+        int due = 0;
+        for (var task : executor.getQueue()) {
+            if (task instanceof Delayed delayed && delayed.getDelay(TimeUnit.NANOSECONDS) <= 0) {
+                ++due;
+            }
+        }
+        return due;
+    }
+}
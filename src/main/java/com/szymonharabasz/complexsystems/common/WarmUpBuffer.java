@@ -0,0 +1,133 @@
+package com.szymonharabasz.complexsystems.common;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Computes the first frames of a simulation ahead of playback, on a
+ * background task, and hands them to the view as they are produced. Once
+ * the warm-up has produced all its frames and they have been played, the
+ * view steps the same source itself, so playback goes on without a seam.
+ * <p>
+ * The source is stepped only by the warm-up task until it finishes and only
+ * by the consumer afterwards; {@link #collect} and {@link #next} must be
+ * called from one thread at a time. If the source throws during the
+ * warm-up, the frames produced before are still played and then
+ * {@link #next} rethrows the failure instead of stepping the source again.
+ */
+public final class WarmUpBuffer<T> {
+
+    private static final long CHUNK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long DELAY_MILLIS = 1;
+
+    private final Supplier<T> source;
+    private final int frames;
+    private final Queue<T> produced = new ConcurrentLinkedQueue<>();
+    private final Queue<T> pending = new ArrayDeque<>();
+    private int producedFrames;
+    private volatile boolean finished;
+    private volatile RuntimeException failure;
+    private volatile SimulationHandle handle;
+
+    /**
+     * @param source steps the simulation and returns its next frame
+     * @param frames number of frames to compute ahead
+     */
+    public WarmUpBuffer(Supplier<T> source, int frames) {
+        this.source = source;
+        this.frames = frames;
+    }
+
+    /**
+     * Starts producing frames on the scheduler, in chunks of about 20 ms with
+     * a fixed delay between them, so that the steps of other simulations that
+     * came due during a chunk run before the next one.
+     * The returned handle stops the warm-up early; it stops by itself when done.
+     * The warm-up is a simulation of its own on the scheduler: until it stops
+     * it takes one of the {@code simulation.scheduler.max-simulations} slots,
+     * besides the one of the simulation it warms up.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if no slot is free
+     */
+    public SimulationHandle start(SimulationScheduler scheduler, String name) {
+        handle = scheduler.scheduleWithFixedDelay(name, () -> {
+            var started = handle;
+            if (produce(CHUNK_NANOS) && started != null) {
+                started.cancel();
+            }
+        }, 0, DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        if (finished) {
+            handle.cancel();
+        }
+        return handle;
+    }
+
+    /**
+     * Produces frames for up to {@code budgetNanos}.
+     *
+     * @return whether all frames of the warm-up have been produced
+     */
+    boolean produce(long budgetNanos) {
+        if (finished) {
+            return true;
+        }
+        var deadline = System.nanoTime() + budgetNanos;
+        try {
+            while (producedFrames < frames && System.nanoTime() < deadline) {
+                produced.add(source.get());
+                ++producedFrames;
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+            finished = true;
+            throw e;
+        }
+        if (producedFrames == frames) {
+            finished = true;
+        }
+        return finished;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private void collect(Consumer<? super T> onProduced) {
+        T frame;
+        while ((frame = produced.poll()) != null) {
+            onProduced.accept(frame);
+            pending.add(frame);
+        }
+    }
+
+    /**
+     * The next frame to play: a precomputed one while there are any, then a
+     * freshly stepped one once the warm-up is over, or null if playback has
+     * caught up with a warm-up still running. Every frame is passed to
+     * {@code onProduced} once, in order, as soon as it is known, so that
+     * precomputed frames can be plotted ahead of playback.
+     *
+     * @throws RuntimeException the failure of the source during the warm-up,
+     *         once the frames produced before it have been played
+     */
+    public T next(Consumer<? super T> onProduced) {
+        var warmUpOver = finished;
+        collect(onProduced);
+        if (!pending.isEmpty()) {
+            return pending.poll();
+        }
+        if (!warmUpOver) {
+            return null;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        var frame = source.get();
+        onProduced.accept(frame);
+        return frame;
+    }
+}
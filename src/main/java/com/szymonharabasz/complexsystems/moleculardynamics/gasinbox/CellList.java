@@ -0,0 +1,72 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import java.util.Arrays;
+
+/**
+ * Square grid of cells over the box [0, l] x [0, l], with the particles of
+ * each cell chained in a linked list kept in primitive arrays. Cells are at
+ * least {@code minCellSize} wide, so every pair closer than that lies in the
+ * same or in adjacent cells.
+ */
+public final class CellList {
+
+    private static final int MAX_CELLS_PER_SIDE = 1024;
+
+    private final int cellsPerSide;
+    private final double cellSize;
+    private final int[] head;
+    private int[] next = new int[0];
+
+    public CellList(double l, double minCellSize) {
+        var fitting = l / minCellSize;
+        this.cellsPerSide = (int) Math.max(1, Math.min(MAX_CELLS_PER_SIDE, Math.floor(fitting)));
+        this.cellSize = l / cellsPerSide;
+        this.head = new int[cellsPerSide * cellsPerSide];
+    }
+
+    public void build(ParticleStore store) {
+        int n = store.size();
+        if (next.length != n) {
+            next = new int[n];
+        }
+        double[] x = store.x();
+        double[] y = store.y();
+        Arrays.fill(head, -1);
+        for (int i = n - 1; i >= 0; --i) {
+            int cell = cellOf(x[i], y[i]);
+            next[i] = head[cell];
+            head[cell] = i;
+        }
+    }
+
+    public int cellsPerSide() {
+        return cellsPerSide;
+    }
+
+    public double cellSize() {
+        return cellSize;
+    }
+
+    public int cellIndex(double coordinate) {
+        int index = (int) (coordinate / cellSize);
+        return Math.max(0, Math.min(cellsPerSide - 1, index));
+    }
+
+    public int cellOf(double x, double y) {
+        return cellIndex(y) * cellsPerSide + cellIndex(x);
+    }
+
+    /**
+     * First particle of the cell, -1 if the cell is empty.
+     */
+    public int head(int cell) {
+        return head[cell];
+    }
+
+    /**
+     * Particle following {@code i} in its cell, -1 at the end of the cell.
+     */
+    public int next(int i) {
+        return next[i];
+    }
+}
@@ -0,0 +1,77 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.Integrator;
+
+/**
+ * Runs the replicas of an ensemble in parallel on the common fork-join pool,
+ * each with a single-threaded force engine, and merges their observables as
+ * they finish. Only the particle store of each running replica is kept.
+ * Each replica steps with its own integrator from the supplier, so that
+ * stateful ones such as {@link Integrator#adaptive} are not shared between
+ * threads.
+ */
+final class Ensemble {
+
+    static final int SPEED_BINS = 100;
+    /** Upper end of the speed histogram, in standard deviations of a velocity component. */
+    static final double MAX_SPEED = 6.0;
+
+    private Ensemble() { }
+
+    static EnsembleResult run(EnsembleSpec spec, Supplier<? extends Integrator> integrators) {
+        var potential = LennardJones.of(spec.epsilon(), spec.sigma());
+        var root = new SplittableRandom(spec.seed());
+        var randoms = new SplittableRandom[spec.replicas()];
+        for (int r = 0; r < randoms.length; ++r) {
+            randoms[r] = root.split();
+        }
+        var maxSpeed = MAX_SPEED * Math.sqrt(2) * spec.v0();
+        return IntStream.range(0, spec.replicas())
+            .parallel()
+            .mapToObj(r -> runReplica(spec, potential, integrators.get(), randoms[r], maxSpeed))
+            .reduce(EnsembleResult::merge)
+            .orElseThrow();
+    }
+
+    private static EnsembleResult runReplica(
+        EnsembleSpec spec, PairPotential potential, Integrator integrator, SplittableRandom random, double maxSpeed
+    ) {
+        var result = EnsembleResult.empty(spec, maxSpeed, SPEED_BINS);
+        var minDistance = 2 * spec.sigma();
+        var placement = InitialConditions.Placement.forPackingFraction(
+            InitialConditions.packingFraction(spec.n(), spec.l(), minDistance));
+        var store = InitialConditions.place(placement, spec.n(), spec.l(), minDistance, random);
+        InitialConditions.maxwellBoltzmann(store, Math.sqrt(2) * spec.v0(), random);
+        var system = new GasInBoxSystem(
+            store, spec.m(), potential, NeighbourList.forPotential(spec.l(), potential), ForceEngine.vectorised(), spec.l());
+        for (int step = 0; step < spec.equilibrationSteps(); ++step) {
+            integrator.step(system, spec.dt());
+        }
+        for (int step = 1; step <= spec.steps(); ++step) {
+            boolean sample = step % spec.sampleEvery() == 0;
+            system.setWithEnergy(sample);
+            integrator.step(system, spec.dt());
+            if (sample) {
+                sample(system, spec.n(), result);
+            }
+        }
+        return result;
+    }
+
+    private static void sample(GasInBoxSystem system, int n, EnsembleResult result) {
+        var observables = system.observables();
+        result.kineticEnergy().add(observables.kineticEnergy() / n);
+        result.potentialEnergy().add(observables.potentialEnergy() / n);
+        result.totalEnergy().add(observables.totalEnergy() / n);
+        result.pressure().add(observables.pressure());
+        double[] vx = system.store().vx();
+        double[] vy = system.store().vy();
+        for (int i = 0; i < n; ++i) {
+            result.speeds().add(Math.hypot(vx[i], vy[i]));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import com.szymonharabasz.complexsystems.common.Histogram;
+import com.szymonharabasz.complexsystems.common.RunningStatistics;
+
+/**
+ * Observables of all samples of all replicas of an ensemble, energies per
+ * particle, and the distribution of the particle speeds over all samples.
+ */
+public record EnsembleResult(
+    EnsembleSpec spec,
+    RunningStatistics kineticEnergy,
+    RunningStatistics potentialEnergy,
+    RunningStatistics totalEnergy,
+    RunningStatistics pressure,
+    Histogram speeds
+) {
+
+    static EnsembleResult empty(EnsembleSpec spec, double maxSpeed, int speedBins) {
+        return new EnsembleResult(
+            spec, new RunningStatistics(), new RunningStatistics(), new RunningStatistics(),
+            new RunningStatistics(), new Histogram(0.0, maxSpeed, speedBins));
+    }
+
+    EnsembleResult merge(EnsembleResult other) {
+        kineticEnergy.merge(other.kineticEnergy);
+        potentialEnergy.merge(other.potentialEnergy);
+        totalEnergy.merge(other.totalEnergy);
+        pressure.merge(other.pressure);
+        speeds.merge(other.speeds);
+        return this;
+    }
+}
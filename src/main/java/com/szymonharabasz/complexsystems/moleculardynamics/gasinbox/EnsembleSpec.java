@@ -0,0 +1,22 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+/**
+ * Parameters of an ensemble of independent runs of a Lennard-Jones gas with
+ * the {@link LennardJones#of(double, double)} cutoff. Each replica starts from
+ * its own random initial condition, runs {@code equilibrationSteps} steps
+ * unobserved and then {@code steps} steps, sampled every {@code sampleEvery}
+ * steps. The replicas' random generators are split off one seeded with
+ * {@code seed}, so the ensemble is reproducible.
+ */
+public record EnsembleSpec(
+    int replicas, long seed, int n, double l, double v0, double m, double epsilon, double sigma, double dt,
+    int equilibrationSteps, int steps, int sampleEvery
+) {
+
+    public EnsembleSpec {
+        if (replicas < 1 || n < 1 || steps < 0 || equilibrationSteps < 0 || sampleEvery < 1) {
+            throw new IllegalArgumentException("Invalid ensemble: " + replicas + " replicas of " + n
+                + " particles, " + equilibrationSteps + " + " + steps + " steps sampled every " + sampleEvery);
+        }
+    }
+}
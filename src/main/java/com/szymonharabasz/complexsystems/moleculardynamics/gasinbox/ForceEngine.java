@@ -0,0 +1,40 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+/**
+ * Evaluates the pair forces over a neighbour list into {@link ParticleStore#fx()}
+ * and {@link ParticleStore#fy()}, overwriting their previous contents, and
+ * stores the pair virial and, on request, the potential energy summed in the
+ * same pass with {@link ParticleStore#setPairSums(double, double)}. Engines
+ * may keep scratch buffers and are then not safe for concurrent runs; use one
+ * engine per simulation.
+ */
+public interface ForceEngine {
+
+    void computeForces(ParticleStore store, PairPotential potential, NeighbourList neighbours, boolean withEnergy);
+
+    default void computeForces(ParticleStore store, PairPotential potential, NeighbourList neighbours) {
+        computeForces(store, potential, neighbours, false);
+    }
+
+    static ForceEngine serial() {
+        return SerialForceEngine.INSTANCE;
+    }
+
+    /**
+     * Single-threaded engine evaluating several Lennard-Jones pairs per
+     * instruction with the incubating Vector API, when the application was
+     * built with the {@code vector} profile and started with
+     * {@code --add-modules jdk.incubator.vector}; the serial engine otherwise.
+     */
+    static ForceEngine vectorised() {
+        return VectorSupport.engine().orElse(serial());
+    }
+
+    /**
+     * The parallel engine for systems large enough to benefit from it,
+     * the vectorised or serial one otherwise.
+     */
+    static ForceEngine forParticles(int n) {
+        return n < ParallelForceEngine.MIN_PARTICLES ? vectorised() : new ParallelForceEngine();
+    }
+}
@@ -0,0 +1,6 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import java.util.List;
+
+public record GasInBoxFrame(List<Particle> particles, StepResult observables) {
+}
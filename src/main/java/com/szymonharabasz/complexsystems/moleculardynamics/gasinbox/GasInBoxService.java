@@ -1,86 +1,100 @@
 package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
-import java.util.Random;
-import java.util.stream.IntStream;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.trajectory.TrajectoryWriter;
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.Integrator;
+
 import jakarta.enterprise.context.Dependent;
-import oshi.util.tuples.Pair;
 
 @Dependent
 public class GasInBoxService {
 
-    private static final Random RANDOM = new Random();
     private static final Logger LOGGER = LoggerFactory.getLogger(GasInBoxService.class);
 
+    /**
+     * Places the particles at least 2σ apart, at random where that is quick and
+     * on a perturbed hexagonal lattice at higher packing fractions, with
+     * Maxwell-Boltzmann velocities whose mean squared speed is (2 v0)².
+     */
     public List<Particle> initialize(int n, double l, double v0, double sigma) {
-        LOGGER.info("Initializing particles");
-        List<Particle> particles = new ArrayList<>();
-
-        while (particles.size() < n) {
-            var x = RANDOM.nextDouble() * l;
-            var y = RANDOM.nextDouble() * l;
-            var theta = RANDOM.nextDouble() * 2 * Math.PI;
-            boolean collision = false;
-            for (var particle : particles) {
-                if (Math.hypot(x - particle.x(), y - particle.y()) < 2*sigma) {
-                    collision = true;
-                    break;
-                }
-            }
-            if (!collision) {
-                particles.add(new Particle(x, y, 2 * v0 * Math.cos(theta), 2 * v0 * Math.sin(theta)));
-            }
-        }
-        return particles;
+        var placement = InitialConditions.Placement.forPackingFraction(InitialConditions.packingFraction(n, l, 2 * sigma));
+        return initialize(n, l, v0, sigma, placement);
     }
 
-    BigDecimal force(double epsilon, double sigma, double r) {
-        BigDecimal ratio = BigDecimal.valueOf(sigma).divide(BigDecimal.valueOf(r), RoundingMode.HALF_UP);
-        BigDecimal power12 = ratio.pow(12).multiply(BigDecimal.valueOf(12 / r));
-        BigDecimal power6 = ratio.pow(6).multiply(BigDecimal.valueOf(6 / r));;
-        return power12.subtract(power6).multiply(BigDecimal.valueOf(4 * epsilon));
+    public List<Particle> initialize(int n, double l, double v0, double sigma, InitialConditions.Placement placement) {
+        return initialize(n, l, v0, sigma, placement, new SplittableRandom());
     }
 
-    BigDecimal force(double epsilon, double sigma, Particle particle1, Particle particle2) {
-        return force(epsilon, sigma, dist(particle1, particle2));
+    /**
+     * Same as {@link #initialize(int, double, double, double, InitialConditions.Placement)},
+     * reproducible with a seeded generator.
+     */
+    public List<Particle> initialize(
+        int n, double l, double v0, double sigma, InitialConditions.Placement placement, RandomGenerator random
+    ) {
+        LOGGER.info("Initializing {} particles, {}", n, placement);
+        var store = InitialConditions.place(placement, n, l, 2 * sigma, random);
+        InitialConditions.maxwellBoltzmann(store, Math.sqrt(2) * v0, random);
+        return store.toParticles();
     }
 
-    BigDecimal potentialEnergy (double epsilon, double sigma, double r) {
-        BigDecimal ratio = BigDecimal.valueOf(sigma).divide(BigDecimal.valueOf(r), RoundingMode.HALF_UP);
-        BigDecimal power12 = ratio.pow(12);
-        BigDecimal power6 = ratio.pow(6);
-        return power12.subtract(power6).multiply(BigDecimal.valueOf(4 * epsilon));
+    /**
+     * Runs the replicas of the ensemble in parallel with the leapfrog and
+     * returns their merged observables.
+     */
+    public EnsembleResult ensemble(EnsembleSpec spec) {
+        return ensemble(spec, Integrator::positionVerlet);
     }
 
-    BigDecimal potentialEnergy(double epsilon, double sigma, Particle particle1, Particle particle2) {
-        return potentialEnergy(epsilon, sigma, dist(particle1, particle2));
+    /**
+     * Like {@link #ensemble(EnsembleSpec)}, each replica stepped with its own
+     * integrator from {@code integrators}, e.g. {@code () -> Integrator.named(name)}.
+     */
+    public EnsembleResult ensemble(EnsembleSpec spec, Supplier<? extends Integrator> integrators) {
+        LOGGER.info("Running an ensemble of {} replicas of {} particles", spec.replicas(), spec.n());
+        return Ensemble.run(spec, integrators);
     }
 
     double kineticEnergy(double m, Particle particle) {
         return m * (Math.pow(particle.vx(), 2) + Math.pow(particle.vy(), 2)) / 2;
     }
 
-    public double totalPotentialEnergy(double epsilon, double sigma, List<Particle> particles) {
-        var result = BigDecimal.ZERO;
-        //for (int i = 0; i < particles.size(); ++i) {
-        for (int i = 0; i < 1; ++i) {
-                for (int j = 0; j < particles.size(); ++j) {
-                    if (i != j) {
-                        result = result.add(potentialEnergy(epsilon, sigma, particles.get(i), particles.get(j)));
+    public double totalPotentialEnergy(double epsilon, double sigma, List<Particle> particles, double l) {
+        return totalPotentialEnergy(LennardJones.of(epsilon, sigma), particles, l);
+    }
 
-                    }
-                }
+    public double totalPotentialEnergy(PairPotential potential, List<Particle> particles, double l) {
+        var store = ParticleStore.fromParticles(particles);
+        var neighbours = NeighbourList.forPotential(l, potential);
+        neighbours.rebuild(store);
+        return totalPotentialEnergy(potential, store, neighbours);
+    }
 
+    public double totalPotentialEnergy(PairPotential potential, ParticleStore store, NeighbourList neighbours) {
+        int n = store.size();
+        double[] x = store.x();
+        double[] y = store.y();
+        int[] offsets = neighbours.offsets();
+        int[] partners = neighbours.partners();
+        var result = 0.0;
+        for (int i = 0; i < n; ++i) {
+            for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                int j = partners[k];
+                var dx = x[i] - x[j];
+                var dy = y[i] - y[j];
+                result += potential.energy(dx * dx + dy * dy);
+            }
         }
-        return result.multiply(BigDecimal.valueOf(0.5)).doubleValue();
+        return result;
     }
 
     public double totalKineticEnergy(double m, List<Particle> particles) {
@@ -91,72 +105,144 @@ public class GasInBoxService {
         return result;
     }
 
-    double dist(Particle particle1, Particle particle2) {
-        var dx = particle1.x() - particle2.x();
-        var dy = particle1.y() - particle2.y();
-        return Math.hypot(dx, dy);
-    }
-
     public Stream<List<Particle>> leapfrog(int n, double l, double v0, double m, double epsilon, double sigma, double dt) {
         return leapfrog(initialize(n, l, v0, sigma), l, m, epsilon, sigma, dt);
     }
 
     public Stream<List<Particle>> leapfrog(List<Particle> initialCondition, double l, double m, double epsilon, double sigma, double dt) {
-        return Stream.iterate(initialCondition, particles -> propagate(particles, m, epsilon, sigma, dt, l));
-    }
-
-    public List<Particle> propagate(List<Particle> previous, double m, double epsilon, double sigma, double dt, double l) {
-        var xMid = previous.stream().map(p -> new Particle(
-            p.x() + p.vx() * dt / 2,
-            p.y() + p.vy() * dt / 2, 
-            p.vx(), p.vy())).toList();
-        var f = xMid.stream().map(p -> {
-            double fx = 0.0;
-            double fy = 0.0;
-            for (var other : xMid) {
-                if (other != p) {
-                    var dx = p.x() - other.x();
-                    var dy = p.y() - other.y();
-                    var dist = dist(p, other);
-                    var forceValue = force(epsilon, sigma, other, p).doubleValue();
-                    fx += forceValue * dx / dist;
-                    fy += forceValue * dy / dist;
-                }
-            }
-            return new Pair<>(fx, fy);
-        }).toList();
-        var result = IntStream.range(0, Math.min(xMid.size(), f.size()))
-            .mapToObj(i -> {
-                var vx = xMid.get(i).vx() + f.get(i).getA() / m * dt;
-                var vy = xMid.get(i).vy() + f.get(i).getB() / m * dt;
-                var x = xMid.get(i).x() + vx * dt / 2;
-                var y = xMid.get(i).y() + vy * dt / 2;
-                if (checkLowerBoundary(x)) {
-                    x = -x;
-                    vx = -vx;
-                }
-                if (checkUpperBoundary(x, l)) {
-                    x = l - x;
-                    vx = -vx;
-                }
-                if (checkLowerBoundary(y)) {
-                    y = -y;
-                    vy = -vy;
-                }
-                if (checkUpperBoundary(y, l)) {
-                    y = l - y;
-                    vy = -vy;
-                }
-                
-                return new Particle(x, y, vx, vy);
-            });
-        return result.toList();
-    }
-
-    boolean checkLowerBoundary(double x) {
-        return x < 0;
-    }
-    boolean checkUpperBoundary(double x, double l) {
-        return x > l;
+        return leapfrog(initialCondition, l, m, LennardJones.of(epsilon, sigma), dt);
+    }
+
+    public Stream<List<Particle>> leapfrog(List<Particle> initialCondition, double l, double m, PairPotential potential, double dt) {
+        return evolve(initialCondition, l, m, potential, Integrator.positionVerlet(), dt);
+    }
+
+    public Stream<List<Particle>> evolve(
+        List<Particle> initialCondition, double l, double m, PairPotential potential, Integrator integrator, double dt
+    ) {
+        return evolve(initialCondition, l, m, potential, integrator, dt, (step, system) -> { });
+    }
+
+    /**
+     * Like {@link #evolve(List, double, double, PairPotential, Integrator, double)},
+     * calling the listener after each step, before the frame is emitted.
+     */
+    public Stream<List<Particle>> evolve(
+        List<Particle> initialCondition, double l, double m, PairPotential potential, Integrator integrator, double dt,
+        StepListener listener
+    ) {
+        var system = system(ParticleStore.fromParticles(initialCondition), l, m, potential);
+        var steps = new long[1];
+        return Stream.iterate(initialCondition, previous -> {
+            integrator.step(system, dt);
+            listener.afterStep(++steps[0], system);
+            return system.store().toParticles();
+        });
+    }
+
+    /**
+     * Leapfrog run with the parameters of the trajectory header, appending every
+     * frame, the initial condition included, to the trajectory. Closing the
+     * stream closes the writer.
+     */
+    public Stream<List<Particle>> record(List<Particle> initialCondition, TrajectoryWriter writer) {
+        var header = writer.header();
+        return leapfrog(initialCondition, header.l(), header.m(), header.potential(), header.dt())
+            .peek(writer::append)
+            .onClose(writer::close);
+    }
+
+    /**
+     * Continues a recorded run from the stored state of its last frame, with
+     * the potential stored in the header, appending the new frames after it.
+     * The forces and neighbour list are rebuilt from that state, so the frames
+     * agree with an uninterrupted run only up to rounding. Closing the stream
+     * closes the writer.
+     */
+    public Stream<List<Particle>> resume(TrajectoryWriter writer) throws IOException {
+        var header = writer.header();
+        LOGGER.info("Resuming trajectory after frame {}", writer.frameCount() - 1);
+        return leapfrog(writer.lastFrame(), header.l(), header.m(), header.potential(), header.dt())
+            .skip(1)
+            .peek(writer::append)
+            .onClose(writer::close);
+    }
+
+    /**
+     * Like {@link #leapfrog(List, double, double, PairPotential, double)}, with the
+     * observables at the end of each step. The first frame is the
+     * initial condition with the observables of one force evaluation.
+     */
+    public Stream<GasInBoxFrame> leapfrogWithObservables(List<Particle> initialCondition, double l, double m, PairPotential potential, double dt) {
+        return evolveWithObservables(initialCondition, l, m, potential, Integrator.positionVerlet(), dt);
+    }
+
+    public Stream<GasInBoxFrame> evolveWithObservables(
+        List<Particle> initialCondition, double l, double m, PairPotential potential, Integrator integrator, double dt
+    ) {
+        return evolveWithObservables(initialCondition, l, m, potential, integrator, dt, (step, system) -> { });
+    }
+
+    public Stream<GasInBoxFrame> evolveWithObservables(
+        List<Particle> initialCondition, double l, double m, PairPotential potential, Integrator integrator, double dt,
+        StepListener listener
+    ) {
+        var system = system(ParticleStore.fromParticles(initialCondition), l, m, potential);
+        system.setWithEnergy(true);
+        system.computeForces();
+        var initial = new GasInBoxFrame(initialCondition, system.observables());
+        var steps = new long[1];
+        return Stream.iterate(initial, previous -> {
+            integrator.step(system, dt);
+            listener.afterStep(++steps[0], system);
+            return new GasInBoxFrame(system.store().toParticles(), system.observables());
+        });
+    }
+
+    /**
+     * Event-driven run of hard disks of the given diameter in the same box,
+     * sampled every {@code interval} of simulated time instead of stepped.
+     * The first frame is the initial condition; the observables of each frame
+     * carry no potential energy and the collision virial of the interval
+     * before it.
+     */
+    public Stream<GasInBoxFrame> hardDisks(List<Particle> initialCondition, double l, double m, double diameter, double interval) {
+        var gas = new HardDiskGas(initialCondition, l, m, diameter);
+        var initial = new GasInBoxFrame(initialCondition, gas.observables());
+        var samples = new long[1];
+        return Stream.iterate(initial, previous -> {
+            gas.advanceTo(++samples[0] * interval);
+            return new GasInBoxFrame(gas.particles(), gas.observables());
+        });
+    }
+
+    /**
+     * Wraps the store for the integrators, with a neighbour list and a force
+     * engine sized for it. Stepping the returned system with an
+     * {@link Integrator} is the way to advance a gas step by step: the system
+     * keeps its neighbour list, with its skin, and its buffers between steps,
+     * so that steps neither rebuild the list nor allocate.
+     */
+    public GasInBoxSystem system(ParticleStore store, double l, double m, PairPotential potential) {
+        return new GasInBoxSystem(
+            store, m, potential, NeighbourList.forPotential(l, potential), ForceEngine.forParticles(store.size()), l);
+    }
+
+    /**
+     * Observables of the current state, at the cost of one force evaluation.
+     */
+    public StepResult observe(
+        ParticleStore store, double m, PairPotential potential, NeighbourList neighbours,
+        ForceEngine forceEngine, double l
+    ) {
+        neighbours.update(store);
+        forceEngine.computeForces(store, potential, neighbours, true);
+        double[] vx = store.vx();
+        double[] vy = store.vy();
+        double v2 = 0.0;
+        for (int i = 0; i < store.size(); ++i) {
+            v2 += vx[i] * vx[i] + vy[i] * vy[i];
+        }
+        return new StepResult(m * v2 / 2, store.potentialEnergy(), store.virial(), l * l);
     }
 }
@@ -0,0 +1,178 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.RestorableSystem;
+
+/**
+ * The gas in a box with reflecting walls as a system for the integrators.
+ * Drifts reflect particles that leave the box, kicks sum the squared
+ * velocities on the way, and force evaluations update the neighbour list
+ * first. Potential energy is summed in the force pass only when observables
+ * are requested with {@link #setWithEnergy(boolean)}. Reflections inside a
+ * drift ignore the forces acting during it, so with wall collisions every
+ * integrator drops to first order in the energy error.
+ */
+public final class GasInBoxSystem implements RestorableSystem {
+
+    private final ParticleStore store;
+    private final double m;
+    private final PairPotential potential;
+    private final NeighbourList neighbours;
+    private final ForceEngine forceEngine;
+    private final double l;
+    private boolean withEnergy;
+    private boolean forcesCurrent;
+    private double v2 = Double.NaN;
+    private ParticleStore saved;
+
+    public GasInBoxSystem(
+        ParticleStore store, double m, PairPotential potential, NeighbourList neighbours,
+        ForceEngine forceEngine, double l
+    ) {
+        this.store = store;
+        this.m = m;
+        this.potential = potential;
+        this.neighbours = neighbours;
+        this.forceEngine = forceEngine;
+        this.l = l;
+    }
+
+    public ParticleStore store() {
+        return store;
+    }
+
+    public NeighbourList neighbours() {
+        return neighbours;
+    }
+
+    public double m() {
+        return m;
+    }
+
+    public double l() {
+        return l;
+    }
+
+    public void setWithEnergy(boolean withEnergy) {
+        this.withEnergy = withEnergy;
+    }
+
+    @Override
+    public void drift(double h) {
+        int n = store.size();
+        double[] x = store.x();
+        double[] y = store.y();
+        double[] vx = store.vx();
+        double[] vy = store.vy();
+        for (int i = 0; i < n; ++i) {
+            x[i] += vx[i] * h;
+            y[i] += vy[i] * h;
+            if (x[i] < 0) {
+                x[i] = -x[i];
+                vx[i] = -vx[i];
+            }
+            if (x[i] > l) {
+                x[i] = 2 * l - x[i];
+                vx[i] = -vx[i];
+            }
+            if (y[i] < 0) {
+                y[i] = -y[i];
+                vy[i] = -vy[i];
+            }
+            if (y[i] > l) {
+                y[i] = 2 * l - y[i];
+                vy[i] = -vy[i];
+            }
+        }
+        forcesCurrent = false;
+    }
+
+    @Override
+    public void kick(double h) {
+        int n = store.size();
+        double[] vx = store.vx();
+        double[] vy = store.vy();
+        double[] fx = store.fx();
+        double[] fy = store.fy();
+        double sum = 0.0;
+        for (int i = 0; i < n; ++i) {
+            vx[i] += fx[i] / m * h;
+            vy[i] += fy[i] / m * h;
+            sum += vx[i] * vx[i] + vy[i] * vy[i];
+        }
+        v2 = sum;
+    }
+
+    @Override
+    public void computeForces() {
+        neighbours.update(store);
+        forceEngine.computeForces(store, potential, neighbours, withEnergy);
+        forcesCurrent = true;
+    }
+
+    @Override
+    public boolean forcesCurrent() {
+        return forcesCurrent;
+    }
+
+    /**
+     * Kinetic energy, as summed by the last kick; reflections at the walls
+     * do not change it.
+     */
+    public double kineticEnergy() {
+        if (Double.isNaN(v2)) {
+            double[] vx = store.vx();
+            double[] vy = store.vy();
+            double sum = 0.0;
+            for (int i = 0; i < store.size(); ++i) {
+                sum += vx[i] * vx[i] + vy[i] * vy[i];
+            }
+            v2 = sum;
+        }
+        return m * v2 / 2;
+    }
+
+    /**
+     * Total energy of the current state, evaluating the forces with energy
+     * if the last evaluation is stale or did not sum it.
+     */
+    @Override
+    public double energy() {
+        evaluateEnergy();
+        return kineticEnergy() + store.potentialEnergy();
+    }
+
+    /**
+     * Observables of the current state, all at the end of the last step. The
+     * last force evaluation is reused when it was made at the current positions
+     * with energy, as after a velocity Verlet step; after a step ending in a
+     * drift, such as position Verlet, the forces are evaluated once more.
+     */
+    public StepResult observables() {
+        evaluateEnergy();
+        return new StepResult(kineticEnergy(), store.potentialEnergy(), store.virial(), l * l);
+    }
+
+    private void evaluateEnergy() {
+        if (!forcesCurrent || Double.isNaN(store.potentialEnergy())) {
+            var previous = withEnergy;
+            withEnergy = true;
+            computeForces();
+            withEnergy = previous;
+        }
+    }
+
+    @Override
+    public void save() {
+        if (saved == null) {
+            saved = new ParticleStore(store.size());
+        }
+        saved.copyFrom(store);
+    }
+
+    @Override
+    public void restore() {
+        store.copyFrom(saved);
+        forcesCurrent = false;
+        v2 = Double.NaN;
+    }
+}
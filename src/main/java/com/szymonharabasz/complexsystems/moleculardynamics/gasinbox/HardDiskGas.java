@@ -0,0 +1,344 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Event-driven dynamics of hard disks in a box with reflecting walls. Disks
+ * move in straight lines between events, so instead of stepping time the
+ * gas jumps from one event to the next: a collision of two disks, a disk
+ * hitting a wall, or a disk crossing into a neighbouring cell.
+ * <p>
+ * Events wait in a priority queue by time. Each disk counts the changes of
+ * its velocity, and an event remembers the counts of its disks when it was
+ * predicted; an event whose disks have changed since is stale and skipped
+ * when it comes up, instead of being searched for and removed. Collisions
+ * are predicted only with the disks of the 3 x 3 cells around a disk and
+ * only up to its next cell crossing or wall, when its prediction is
+ * renewed, so each event costs O(log N). Disks keep the time at which their
+ * position was last brought up to date and are moved only when they take
+ * part in an event or when the gas is sampled.
+ * <p>
+ * The pressure comes from the impulses of the collisions: their virial
+ * r_ij · Δp_ij summed over a sampling interval and divided by its length
+ * takes the place of r_ij · F_ij in {@link StepResult}.
+ */
+public final class HardDiskGas {
+
+    private enum Type { COLLISION, WALL_X, WALL_Y, CELL }
+
+    private static final class Event implements Comparable<Event> {
+
+        private final double time;
+        private final Type type;
+        private final int i;
+        private final int j;
+        private final int countI;
+        private final int countJ;
+
+        Event(double time, Type type, int i, int j, int countI, int countJ) {
+            this.time = time;
+            this.type = type;
+            this.i = i;
+            this.j = j;
+            this.countI = countI;
+            this.countJ = countJ;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            return Double.compare(time, other.time);
+        }
+    }
+
+    private final int n;
+    private final double l;
+    private final double m;
+    private final double diameter;
+    private final double radius;
+    private final double[] x;
+    private final double[] y;
+    private final double[] vx;
+    private final double[] vy;
+    private final double[] updated;
+    private final int[] counts;
+
+    private final int cells;
+    private final double cellSide;
+    private final int[] cellX;
+    private final int[] cellY;
+    private final int[] head;
+    private final int[] next;
+    private final int[] previous;
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private double time;
+    private double sampledAt;
+    private double virial;
+    private long processedEvents;
+
+    /**
+     * @param diameter distance of the centres of two touching disks; the
+     *        centres stay at least half of it from the walls
+     */
+    public HardDiskGas(List<Particle> initialCondition, double l, double m, double diameter) {
+        this.n = initialCondition.size();
+        this.l = l;
+        this.m = m;
+        this.diameter = diameter;
+        this.radius = diameter / 2;
+        this.x = new double[n];
+        this.y = new double[n];
+        this.vx = new double[n];
+        this.vy = new double[n];
+        this.updated = new double[n];
+        this.counts = new int[n];
+        this.cells = Math.max(1, (int) Math.floor(l / diameter));
+        this.cellSide = l / cells;
+        this.cellX = new int[n];
+        this.cellY = new int[n];
+        this.head = new int[cells * cells];
+        this.next = new int[n];
+        this.previous = new int[n];
+        Arrays.fill(head, -1);
+        for (int i = 0; i < n; ++i) {
+            var particle = initialCondition.get(i);
+            x[i] = particle.x();
+            y[i] = particle.y();
+            vx[i] = particle.vx();
+            vy[i] = particle.vy();
+            cellX[i] = cellOf(x[i]);
+            cellY[i] = cellOf(y[i]);
+            link(i);
+        }
+        for (int i = 0; i < n; ++i) {
+            predict(i, -1);
+        }
+    }
+
+    public double time() {
+        return time;
+    }
+
+    /**
+     * Events processed so far, stale ones not included.
+     */
+    public long processedEvents() {
+        return processedEvents;
+    }
+
+    /**
+     * Processes all events up to {@code target} and moves the clock there.
+     */
+    public void advanceTo(double target) {
+        while (!events.isEmpty() && events.peek().time <= target) {
+            var event = events.poll();
+            if (counts[event.i] != event.countI || event.type == Type.COLLISION && counts[event.j] != event.countJ) {
+                continue;
+            }
+            time = event.time;
+            ++processedEvents;
+            switch (event.type) {
+                case COLLISION -> collide(event.i, event.j);
+                case WALL_X -> {
+                    move(event.i);
+                    vx[event.i] = -vx[event.i];
+                    ++counts[event.i];
+                    predict(event.i, -1);
+                }
+                case WALL_Y -> {
+                    move(event.i);
+                    vy[event.i] = -vy[event.i];
+                    ++counts[event.i];
+                    predict(event.i, -1);
+                }
+                case CELL -> cross(event.i);
+            }
+            if (events.size() > 16 * n + 1024) {
+                events.removeIf(e -> counts[e.i] != e.countI || e.type == Type.COLLISION && counts[e.j] != e.countJ);
+            }
+        }
+        time = Math.max(time, target);
+    }
+
+    /**
+     * Positions and velocities at the current time.
+     */
+    public List<Particle> particles() {
+        List<Particle> particles = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            var dt = time - updated[i];
+            particles.add(new Particle(x[i] + vx[i] * dt, y[i] + vy[i] * dt, vx[i], vy[i]));
+        }
+        return particles;
+    }
+
+    public double kineticEnergy() {
+        double sum = 0;
+        for (int i = 0; i < n; ++i) {
+            sum += vx[i] * vx[i] + vy[i] * vy[i];
+        }
+        return m * sum / 2;
+    }
+
+    /**
+     * Observables since the previous call: the kinetic energy, no potential
+     * energy, and the collision virial per unit time of the interval.
+     */
+    public StepResult observables() {
+        var interval = time - sampledAt;
+        var result = new StepResult(kineticEnergy(), 0, interval > 0 ? virial / interval : 0, l * l);
+        sampledAt = time;
+        virial = 0;
+        return result;
+    }
+
+    private void collide(int i, int j) {
+        move(i);
+        move(j);
+        var dx = x[j] - x[i];
+        var dy = y[j] - y[i];
+        var distance = Math.sqrt(dx * dx + dy * dy);
+        var nx = dx / distance;
+        var ny = dy / distance;
+        var dvn = (vx[j] - vx[i]) * nx + (vy[j] - vy[i]) * ny;
+        vx[i] += dvn * nx;
+        vy[i] += dvn * ny;
+        vx[j] -= dvn * nx;
+        vy[j] -= dvn * ny;
+        virial -= m * dvn * distance;
+        ++counts[i];
+        ++counts[j];
+        predict(i, j);
+        predict(j, i);
+    }
+
+    private void cross(int i) {
+        move(i);
+        unlink(i);
+        if (crossingTime(x[i], vx[i], cellX[i], time) <= crossingTime(y[i], vy[i], cellY[i], time)) {
+            cellX[i] += vx[i] > 0 ? 1 : -1;
+        } else {
+            cellY[i] += vy[i] > 0 ? 1 : -1;
+        }
+        link(i);
+        predictCollisions(i, -1, Math.min(nextCrossing(i), nextWall(i)));
+        pushCrossing(i);
+    }
+
+    /**
+     * Predicts the next wall, cell crossing and collisions of disk i, except
+     * with disk {@code skip}, which it has just collided with.
+     */
+    private void predict(int i, int skip) {
+        var wall = nextWall(i);
+        var crossing = nextCrossing(i);
+        if (wall < Double.POSITIVE_INFINITY) {
+            var wallX = wallTime(x[i], vx[i], updated[i]);
+            events.add(new Event(wall, wall == wallX ? Type.WALL_X : Type.WALL_Y, i, -1, counts[i], 0));
+        }
+        pushCrossing(i);
+        predictCollisions(i, skip, Math.min(wall, crossing));
+    }
+
+    private void predictCollisions(int i, int skip, double horizon) {
+        var xi = x[i] + vx[i] * (time - updated[i]);
+        var yi = y[i] + vy[i] * (time - updated[i]);
+        for (int cx = Math.max(0, cellX[i] - 1); cx <= Math.min(cells - 1, cellX[i] + 1); ++cx) {
+            for (int cy = Math.max(0, cellY[i] - 1); cy <= Math.min(cells - 1, cellY[i] + 1); ++cy) {
+                for (int j = head[cx * cells + cy]; j >= 0; j = next[j]) {
+                    if (j == i || j == skip) {
+                        continue;
+                    }
+                    var dx = x[j] + vx[j] * (time - updated[j]) - xi;
+                    var dy = y[j] + vy[j] * (time - updated[j]) - yi;
+                    var dvx = vx[j] - vx[i];
+                    var dvy = vy[j] - vy[i];
+                    var b = dx * dvx + dy * dvy;
+                    if (b >= 0) {
+                        continue;
+                    }
+                    var dv2 = dvx * dvx + dvy * dvy;
+                    var overlap = dx * dx + dy * dy - diameter * diameter;
+                    var discriminant = b * b - dv2 * overlap;
+                    if (discriminant < 0) {
+                        continue;
+                    }
+                    var collision = time + Math.max(0, -(b + Math.sqrt(discriminant)) / dv2);
+                    if (collision <= horizon) {
+                        events.add(new Event(collision, Type.COLLISION, i, j, counts[i], counts[j]));
+                    }
+                }
+            }
+        }
+    }
+
+    private void pushCrossing(int i) {
+        var crossing = nextCrossing(i);
+        if (crossing < Double.POSITIVE_INFINITY) {
+            events.add(new Event(crossing, Type.CELL, i, -1, counts[i], 0));
+        }
+    }
+
+    private double nextWall(int i) {
+        return Math.min(wallTime(x[i], vx[i], updated[i]), wallTime(y[i], vy[i], updated[i]));
+    }
+
+    private double wallTime(double position, double velocity, double since) {
+        if (velocity > 0) {
+            return Math.max(time, since + (l - radius - position) / velocity);
+        } else if (velocity < 0) {
+            return Math.max(time, since + (radius - position) / velocity);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private double nextCrossing(int i) {
+        return Math.min(
+            crossingTime(x[i], vx[i], cellX[i], updated[i]),
+            crossingTime(y[i], vy[i], cellY[i], updated[i]));
+    }
+
+    private double crossingTime(double position, double velocity, int cell, double since) {
+        if (velocity > 0 && cell < cells - 1) {
+            return Math.max(time, since + (cellSide * (cell + 1) - position) / velocity);
+        } else if (velocity < 0 && cell > 0) {
+            return Math.max(time, since + (cellSide * cell - position) / velocity);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private void move(int i) {
+        var dt = time - updated[i];
+        x[i] += vx[i] * dt;
+        y[i] += vy[i] * dt;
+        updated[i] = time;
+    }
+
+    private int cellOf(double position) {
+        return Math.max(0, Math.min(cells - 1, (int) Math.floor(position / cellSide)));
+    }
+
+    private void link(int i) {
+        var cell = cellX[i] * cells + cellY[i];
+        previous[i] = -1;
+        next[i] = head[cell];
+        if (head[cell] >= 0) {
+            previous[head[cell]] = i;
+        }
+        head[cell] = i;
+    }
+
+    private void unlink(int i) {
+        if (previous[i] >= 0) {
+            next[previous[i]] = next[i];
+        } else {
+            head[cellX[i] * cells + cellY[i]] = next[i];
+        }
+        if (next[i] >= 0) {
+            previous[next[i]] = previous[i];
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Non-overlapping initial positions in the box [0, l] x [0, l] and
+ * Maxwell-Boltzmann velocities. Overlap checks go through a {@link SpatialHash},
+ * so every placement strategy is linear in the number of particles.
+ */
+public final class InitialConditions {
+
+    /**
+     * Packing fraction below which random sequential addition fills the box
+     * quickly; it cannot get past about 0.547 at all.
+     */
+    public static final double RANDOM_PACKING_LIMIT = 0.4;
+
+    private static final int ATTEMPTS_PER_PARTICLE = 1000;
+    private static final double RAMP_FACTOR = 0.97;
+    private static final int MAX_SEPARATION_SWEEPS = 1000;
+
+    public enum Placement {
+        /** Square lattice sites, chosen at random if there are more than particles, each displaced at random. */
+        SQUARE_LATTICE,
+        /** Same on a hexagonal lattice, which fits up to the densest packing of discs. */
+        HEXAGONAL_LATTICE,
+        /** Uniformly random positions, rejected if they overlap a particle already placed. */
+        RANDOM_SEQUENTIAL,
+        /**
+         * Random sequential addition in a larger box, compressed in small steps
+         * and relaxed after each; slow, but gets close to random close packing.
+         */
+        DENSITY_RAMP;
+
+        /**
+         * Random placement where it works, the hexagonal lattice at higher packing fractions.
+         */
+        public static Placement forPackingFraction(double packingFraction) {
+            return packingFraction < RANDOM_PACKING_LIMIT ? RANDOM_SEQUENTIAL : HEXAGONAL_LATTICE;
+        }
+    }
+
+    private InitialConditions() { }
+
+    /**
+     * Fraction of the box covered by discs of diameter {@code minDistance}.
+     */
+    public static double packingFraction(int n, double l, double minDistance) {
+        return n * Math.PI * minDistance * minDistance / 4 / (l * l);
+    }
+
+    /**
+     * Places {@code n} particles at rest, no two closer than {@code minDistance}.
+     *
+     * @throws IllegalArgumentException if the particles cannot fit with the chosen placement
+     */
+    public static ParticleStore place(Placement placement, int n, double l, double minDistance, RandomGenerator random) {
+        var store = new ParticleStore(n);
+        switch (placement) {
+            case SQUARE_LATTICE -> squareLattice(store, l, minDistance, random);
+            case HEXAGONAL_LATTICE -> hexagonalLattice(store, l, minDistance, random);
+            case RANDOM_SEQUENTIAL -> randomSequential(store, l, minDistance, random);
+            case DENSITY_RAMP -> densityRamp(store, l, minDistance, random);
+        }
+        return store;
+    }
+
+    /**
+     * Draws each velocity component from a normal distribution with standard
+     * deviation {@code sigmaV}, removes the centre-of-mass velocity and rescales
+     * so that the mean squared speed is exactly 2 sigmaV².
+     */
+    public static void maxwellBoltzmann(ParticleStore store, double sigmaV, RandomGenerator random) {
+        int n = store.size();
+        double[] vx = store.vx();
+        double[] vy = store.vy();
+        double meanVx = 0.0;
+        double meanVy = 0.0;
+        for (int i = 0; i < n; ++i) {
+            vx[i] = sigmaV * random.nextGaussian();
+            vy[i] = sigmaV * random.nextGaussian();
+            meanVx += vx[i];
+            meanVy += vy[i];
+        }
+        meanVx /= n;
+        meanVy /= n;
+        double v2 = 0.0;
+        for (int i = 0; i < n; ++i) {
+            vx[i] -= meanVx;
+            vy[i] -= meanVy;
+            v2 += vx[i] * vx[i] + vy[i] * vy[i];
+        }
+        if (v2 > 0.0) {
+            var scale = Math.sqrt(2 * sigmaV * sigmaV * n / v2);
+            for (int i = 0; i < n; ++i) {
+                vx[i] *= scale;
+                vy[i] *= scale;
+            }
+        }
+    }
+
+    private static void squareLattice(ParticleStore store, double l, double minDistance, RandomGenerator random) {
+        int n = store.size();
+        int side = (int) Math.ceil(Math.sqrt(n));
+        var spacing = l / side;
+        fillLattice(store, side, side, spacing, spacing, 0.0, minDistance, random);
+    }
+
+    private static void hexagonalLattice(ParticleStore store, double l, double minDistance, RandomGenerator random) {
+        int n = store.size();
+        var rowHeight = Math.sqrt(3) / 2;
+        int columns = (int) Math.ceil(Math.sqrt(n * rowHeight));
+        int rows = (int) Math.ceil((double) n / columns);
+        // shifted rows need half a spacing more room
+        var spacing = Math.min(l / (columns + 0.5), l / (rows * rowHeight));
+        fillLattice(store, columns, rows, spacing, spacing * rowHeight, spacing / 2, minDistance, random);
+    }
+
+    /**
+     * Puts the particles on randomly chosen sites of a lattice with every other
+     * row shifted by {@code shift}, and displaces each by less than half the
+     * margin between the site spacing and the minimum distance.
+     */
+    private static void fillLattice(
+        ParticleStore store, int columns, int rows, double spacing, double rowSpacing, double shift,
+        double minDistance, RandomGenerator random
+    ) {
+        var nearest = shift == 0.0 ? Math.min(spacing, rowSpacing) : Math.min(spacing, Math.hypot(shift, rowSpacing));
+        if (nearest < minDistance) {
+            throw new IllegalArgumentException(
+                "Lattice spacing " + nearest + " is below the minimum distance " + minDistance);
+        }
+        int n = store.size();
+        int sites = columns * rows;
+        var order = new int[sites];
+        for (int s = 0; s < sites; ++s) {
+            order[s] = s;
+        }
+        double[] x = store.x();
+        double[] y = store.y();
+        var maxDisplacement = (nearest - minDistance) / 2;
+        for (int i = 0; i < n; ++i) {
+            int pick = i + random.nextInt(sites - i);
+            int site = order[pick];
+            order[pick] = order[i];
+            order[i] = site;
+            int column = site % columns;
+            int row = site / columns;
+            var angle = random.nextDouble(2 * Math.PI);
+            var displacement = maxDisplacement * Math.sqrt(random.nextDouble());
+            x[i] = (column + 0.5) * spacing + (row % 2) * shift + displacement * Math.cos(angle);
+            y[i] = (row + 0.5) * rowSpacing + displacement * Math.sin(angle);
+        }
+    }
+
+    private static void randomSequential(ParticleStore store, double l, double minDistance, RandomGenerator random) {
+        var hash = new SpatialHash(l, minDistance, store.x(), store.y());
+        addRandomly(store, hash, l, minDistance, random);
+    }
+
+    private static void addRandomly(
+        ParticleStore store, SpatialHash hash, double l, double minDistance, RandomGenerator random
+    ) {
+        int n = store.size();
+        double[] x = store.x();
+        double[] y = store.y();
+        long attempts = (long) ATTEMPTS_PER_PARTICLE * n;
+        int placed = 0;
+        while (placed < n) {
+            if (attempts-- == 0) {
+                throw new IllegalArgumentException(
+                    "Placed only " + placed + " of " + n + " particles at random, packing fraction "
+                    + packingFraction(n, l, minDistance) + " is too high for random sequential addition");
+            }
+            var px = random.nextDouble(l);
+            var py = random.nextDouble(l);
+            if (!hash.overlaps(px, py, -1)) {
+                x[placed] = px;
+                y[placed] = py;
+                hash.insert(placed);
+                ++placed;
+            }
+        }
+    }
+
+    private static void densityRamp(ParticleStore store, double l, double minDistance, RandomGenerator random) {
+        int n = store.size();
+        var packingFraction = packingFraction(n, l, minDistance);
+        var size = l * Math.sqrt(Math.max(1.0, packingFraction / RANDOM_PACKING_LIMIT));
+        var hash = new SpatialHash(size, minDistance, store.x(), store.y());
+        addRandomly(store, hash, size, minDistance, random);
+        double[] x = store.x();
+        double[] y = store.y();
+        while (size > l) {
+            var next = Math.max(l, size * RAMP_FACTOR);
+            var scale = next / size;
+            for (int i = 0; i < n; ++i) {
+                x[i] *= scale;
+                y[i] *= scale;
+            }
+            size = next;
+            hash.rehash(n);
+            int sweeps = 0;
+            while (hash.separate(n, size) > 0) {
+                if (++sweeps == MAX_SEPARATION_SWEEPS) {
+                    throw new IllegalArgumentException(
+                        "Could not compress " + n + " particles beyond packing fraction "
+                        + packingFraction(n, size, minDistance));
+                }
+            }
+        }
+    }
+}
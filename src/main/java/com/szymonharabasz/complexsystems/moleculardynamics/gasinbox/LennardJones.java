@@ -0,0 +1,133 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+/**
+ * Lennard-Jones potential in plain doubles. The energy and force are computed
+ * from r² through (σ²/r²)³, so no square root or power function is needed
+ * except for the shifted-force correction.
+ */
+public final class LennardJones implements PairPotential {
+
+    /**
+     * Cutoff radius used by {@link #of(double, double)}, in units of σ.
+     */
+    public static final double DEFAULT_CUTOFF = 2.5;
+
+    public enum Truncation {
+        /** Plain truncation, the energy jumps at the cutoff. */
+        NONE,
+        /** Energy shifted by U(rc), continuous energy, discontinuous force. */
+        SHIFTED,
+        /** Energy and force both shifted, so that both vanish at the cutoff. */
+        SHIFTED_FORCE
+    }
+
+    private final double epsilon;
+    private final double sigma;
+    private final double cutoff;
+    private final Truncation truncation;
+
+    private final double sigma2;
+    private final double cutoff2;
+    private final double energyShift;
+    private final double forceShift;
+
+    public LennardJones(double epsilon, double sigma, double cutoff, Truncation truncation) {
+        this.epsilon = epsilon;
+        this.sigma = sigma;
+        this.cutoff = cutoff;
+        this.truncation = truncation;
+        this.sigma2 = sigma * sigma;
+        this.cutoff2 = cutoff * cutoff;
+        if (Double.isInfinite(cutoff) || truncation == Truncation.NONE) {
+            this.energyShift = 0.0;
+            this.forceShift = 0.0;
+        } else {
+            this.energyShift = rawEnergy(cutoff2);
+            this.forceShift = truncation == Truncation.SHIFTED_FORCE ? rawForceOverR(cutoff2) * cutoff : 0.0;
+        }
+    }
+
+    public static LennardJones of(double epsilon, double sigma) {
+        return new LennardJones(epsilon, sigma, DEFAULT_CUTOFF * sigma, Truncation.SHIFTED);
+    }
+
+    public static LennardJones untruncated(double epsilon, double sigma) {
+        return new LennardJones(epsilon, sigma, Double.POSITIVE_INFINITY, Truncation.NONE);
+    }
+
+    public double epsilon() {
+        return epsilon;
+    }
+
+    public double sigma() {
+        return sigma;
+    }
+
+    public Truncation truncation() {
+        return truncation;
+    }
+
+    double sigmaSquared() {
+        return sigma2;
+    }
+
+    /**
+     * U(rc) subtracted from the energy, 0 for plain truncation.
+     */
+    double energyShift() {
+        return energyShift;
+    }
+
+    /**
+     * F(rc) subtracted from the force with shifted-force truncation, 0 otherwise.
+     */
+    double forceShift() {
+        return forceShift;
+    }
+
+    @Override
+    public double cutoff() {
+        return cutoff;
+    }
+
+    @Override
+    public double cutoffSquared() {
+        return cutoff2;
+    }
+
+    @Override
+    public double energy(double r2) {
+        if (r2 >= cutoff2) {
+            return 0.0;
+        }
+        var energy = rawEnergy(r2) - energyShift;
+        if (truncation == Truncation.SHIFTED_FORCE) {
+            energy += (Math.sqrt(r2) - cutoff) * forceShift;
+        }
+        return energy;
+    }
+
+    @Override
+    public double forceOverR(double r2) {
+        if (r2 >= cutoff2) {
+            return 0.0;
+        }
+        var force = rawForceOverR(r2);
+        if (truncation == Truncation.SHIFTED_FORCE) {
+            force -= forceShift / Math.sqrt(r2);
+        }
+        return force;
+    }
+
+    private double rawEnergy(double r2) {
+        var s2 = sigma2 / r2;
+        var s6 = s2 * s2 * s2;
+        return 4 * epsilon * s6 * (s6 - 1);
+    }
+
+    private double rawForceOverR(double r2) {
+        var s2 = sigma2 / r2;
+        var s6 = s2 * s2 * s2;
+        return 24 * epsilon * s6 * (2 * s6 - 1) / r2;
+    }
+}
@@ -0,0 +1,147 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import java.util.Arrays;
+
+/**
+ * Verlet neighbour list built from a {@link CellList}. Each pair is stored
+ * once, under the lower index, with all partners of particle i in
+ * {@code partners()[offsets()[i]] .. partners()[offsets()[i + 1] - 1]}.
+ * Pairs are collected up to {@code cutoff + skin} and the list is rebuilt
+ * only once some particle has moved more than half the skin since the last
+ * build. A skin of zero degenerates to a plain cell list rebuilt every step.
+ */
+public final class NeighbourList {
+
+    /**
+     * Skin used by {@link #forPotential(double, PairPotential)}, as a fraction
+     * of the cutoff; 0.12 gives the usual 0.3σ for a 2.5σ cutoff.
+     */
+    public static final double DEFAULT_SKIN_FRACTION = 0.12;
+
+    private final double cutoff;
+    private final double skin;
+    private final double listRadius2;
+    private final double maxDisplacement2;
+    private final boolean complete;
+    private final CellList cells;
+
+    private int n = -1;
+    private int[] offsets = new int[1];
+    private int[] partners = new int[0];
+    private double[] xAtBuild = new double[0];
+    private double[] yAtBuild = new double[0];
+    private long builds;
+
+    public NeighbourList(double l, double cutoff, double skin) {
+        var listRadius = cutoff + skin;
+        this.cutoff = cutoff;
+        this.skin = skin;
+        this.listRadius2 = listRadius * listRadius;
+        this.maxDisplacement2 = skin * skin / 4;
+        this.complete = Double.isInfinite(cutoff) || listRadius >= l * Math.sqrt(2);
+        this.cells = new CellList(l, listRadius);
+    }
+
+    public static NeighbourList forPotential(double l, PairPotential potential) {
+        var cutoff = potential.cutoff();
+        return new NeighbourList(l, cutoff, Double.isInfinite(cutoff) ? 0.0 : DEFAULT_SKIN_FRACTION * cutoff);
+    }
+
+    /**
+     * Distance within which every pair is listed after an {@link #update(ParticleStore)}.
+     */
+    public double cutoff() {
+        return cutoff;
+    }
+
+    public double skin() {
+        return skin;
+    }
+
+    public int[] offsets() {
+        return offsets;
+    }
+
+    public int[] partners() {
+        return partners;
+    }
+
+    public int pairCount() {
+        return n < 0 ? 0 : offsets[n];
+    }
+
+    public long builds() {
+        return builds;
+    }
+
+    /**
+     * Rebuilds the list if the particles have moved too far since the last
+     * build, returns whether it did.
+     */
+    public boolean update(ParticleStore store) {
+        if (needsRebuild(store)) {
+            rebuild(store);
+            return true;
+        }
+        return false;
+    }
+
+    boolean needsRebuild(ParticleStore store) {
+        if (store.size() != n) {
+            return true;
+        }
+        if (complete) {
+            return false;
+        }
+        double[] x = store.x();
+        double[] y = store.y();
+        for (int i = 0; i < n; ++i) {
+            var dx = x[i] - xAtBuild[i];
+            var dy = y[i] - yAtBuild[i];
+            if (dx * dx + dy * dy > maxDisplacement2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void rebuild(ParticleStore store) {
+        n = store.size();
+        double[] x = store.x();
+        double[] y = store.y();
+        if (offsets.length != n + 1) {
+            offsets = new int[n + 1];
+            xAtBuild = new double[n];
+            yAtBuild = new double[n];
+        }
+        System.arraycopy(x, 0, xAtBuild, 0, n);
+        System.arraycopy(y, 0, yAtBuild, 0, n);
+        cells.build(store);
+
+        int side = cells.cellsPerSide();
+        int count = 0;
+        for (int i = 0; i < n; ++i) {
+            offsets[i] = count;
+            int cx = cells.cellIndex(x[i]);
+            int cy = cells.cellIndex(y[i]);
+            for (int ny = Math.max(0, cy - 1); ny <= Math.min(side - 1, cy + 1); ++ny) {
+                for (int nx = Math.max(0, cx - 1); nx <= Math.min(side - 1, cx + 1); ++nx) {
+                    for (int j = cells.head(ny * side + nx); j >= 0; j = cells.next(j)) {
+                        if (j > i) {
+                            var dx = x[i] - x[j];
+                            var dy = y[i] - y[j];
+                            if (complete || dx * dx + dy * dy < listRadius2) {
+                                if (count == partners.length) {
+                                    partners = Arrays.copyOf(partners, Math.max(16, 2 * partners.length));
+                                }
+                                partners[count++] = j;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        offsets[n] = count;
+        ++builds;
+    }
+}
@@ -0,0 +1,30 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+/**
+ * Central pair interaction evaluated from the squared separation, so that
+ * callers never need a square root to decide whether a pair interacts.
+ */
+public interface PairPotential {
+
+    /**
+     * Pair energy at squared separation {@code r2}, zero beyond the cutoff.
+     */
+    double energy(double r2);
+
+    /**
+     * Magnitude of the pair force divided by the separation, positive when
+     * repulsive, so that the force on particle i is {@code forceOverR * (r_i - r_j)}.
+     * Zero beyond the cutoff.
+     */
+    double forceOverR(double r2);
+
+    /**
+     * Separation beyond which the interaction vanishes,
+     * {@link Double#POSITIVE_INFINITY} if it never does.
+     */
+    double cutoff();
+
+    default double cutoffSquared() {
+        return cutoff() * cutoff();
+    }
+}
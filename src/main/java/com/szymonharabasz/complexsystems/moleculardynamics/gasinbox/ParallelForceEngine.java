@@ -0,0 +1,258 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Force evaluation split across a fork-join pool. The particles are divided
+ * into a fixed number of chunks holding roughly equal numbers of listed
+ * pairs. Each chunk owns the forces of its particles in the store and adds
+ * its pairs among them there directly; the reactions on particles of later
+ * chunks, which pairs listed under i only reach as partners j > i, go to
+ * lists kept per chunk and per block of particle indices. The lists are then
+ * added block by block, in chunk order, so that the memory traffic follows
+ * the number of pairs rather than chunks times particles, and the result
+ * depends only on the chunk count, not on scheduling, and is
+ * bit-reproducible for a fixed number of chunks.
+ * <p>
+ * The tasks and lists are kept between steps, so a step allocates nothing
+ * once the lists have grown to the pair counts of the run.
+ */
+public final class ParallelForceEngine implements ForceEngine {
+
+    /**
+     * Below this many particles the forces are computed serially.
+     */
+    public static final int MIN_PARTICLES = 4096;
+
+    private final ForkJoinPool pool;
+    private final int chunks;
+    private final int[] bounds;
+    private final double[][] sums;
+    private final Reactions[][] reactions;
+    private final ForkJoinTask<?> accumulation;
+    private final ForkJoinTask<?> reduction;
+
+    private ParticleStore store;
+    private PairPotential potential;
+    private NeighbourList neighbours;
+    private boolean withEnergy;
+    private int blockShift;
+
+    public ParallelForceEngine() {
+        this(ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelForceEngine(ForkJoinPool pool, int chunks) {
+        if (chunks < 1) {
+            throw new IllegalArgumentException("Number of chunks must be positive, got " + chunks);
+        }
+        this.pool = pool;
+        this.chunks = chunks;
+        this.bounds = new int[chunks + 1];
+        this.sums = new double[chunks][2];
+        this.reactions = new Reactions[chunks][chunks];
+        var accumulators = new Accumulator[chunks];
+        var reducers = new Reducer[chunks];
+        for (int c = 0; c < chunks; ++c) {
+            for (int b = 0; b < chunks; ++b) {
+                reactions[c][b] = new Reactions();
+            }
+            accumulators[c] = new Accumulator(c);
+            reducers[c] = new Reducer(c);
+        }
+        this.accumulation = new InvokeAll(accumulators);
+        this.reduction = new InvokeAll(reducers);
+    }
+
+    public int chunks() {
+        return chunks;
+    }
+
+    @Override
+    public void computeForces(ParticleStore store, PairPotential potential, NeighbourList neighbours, boolean withEnergy) {
+        int n = store.size();
+        if (n < MIN_PARTICLES || chunks == 1) {
+            SerialForceEngine.INSTANCE.computeForces(store, potential, neighbours, withEnergy);
+            return;
+        }
+        this.store = store;
+        this.potential = potential;
+        this.neighbours = neighbours;
+        this.withEnergy = withEnergy;
+        balance(neighbours.offsets(), n);
+        // blocks of 2^blockShift indices, at most as many blocks as chunks
+        blockShift = 32 - Integer.numberOfLeadingZeros((n - 1) / chunks);
+        try {
+            accumulation.reinitialize();
+            pool.invoke(accumulation);
+            reduction.reinitialize();
+            pool.invoke(reduction);
+        } finally {
+            this.store = null;
+            this.potential = null;
+            this.neighbours = null;
+        }
+
+        double energy = 0.0;
+        double virial = 0.0;
+        for (double[] chunkSums : sums) {
+            energy += chunkSums[0];
+            virial += chunkSums[1];
+        }
+        store.setPairSums(withEnergy ? energy : Double.NaN, virial);
+    }
+
+    /**
+     * Splits the particles into chunks of about equal pair counts, using
+     * the prefix sums of pairs that the neighbour list offsets already are.
+     */
+    private void balance(int[] offsets, int n) {
+        long pairs = offsets[n];
+        bounds[0] = 0;
+        int i = 0;
+        for (int c = 1; c < chunks; ++c) {
+            long target = pairs * c / chunks;
+            while (i < n && offsets[i] < target) {
+                ++i;
+            }
+            bounds[c] = i;
+        }
+        bounds[chunks] = n;
+    }
+
+    /**
+     * Forces of the pairs listed under the particles of one chunk.
+     */
+    private final class Accumulator extends RecursiveAction {
+
+        private final int chunk;
+
+        Accumulator(int chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            int from = bounds[chunk];
+            int to = bounds[chunk + 1];
+            var chunkReactions = reactions[chunk];
+            for (var list : chunkReactions) {
+                list.clear();
+            }
+            double[] x = store.x();
+            double[] y = store.y();
+            double[] fx = store.fx();
+            double[] fy = store.fy();
+            Arrays.fill(fx, from, to, 0.0);
+            Arrays.fill(fy, from, to, 0.0);
+            double cutoff2 = potential.cutoffSquared();
+            int[] offsets = neighbours.offsets();
+            int[] partners = neighbours.partners();
+            double energy = 0.0;
+            double virial = 0.0;
+            for (int i = from; i < to; ++i) {
+                var xi = x[i];
+                var yi = y[i];
+                double fxi = 0.0;
+                double fyi = 0.0;
+                for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                    int j = partners[k];
+                    var dx = xi - x[j];
+                    var dy = yi - y[j];
+                    var r2 = dx * dx + dy * dy;
+                    if (r2 < cutoff2) {
+                        var forceOverR = potential.forceOverR(r2);
+                        fxi += forceOverR * dx;
+                        fyi += forceOverR * dy;
+                        if (j < to) {
+                            fx[j] -= forceOverR * dx;
+                            fy[j] -= forceOverR * dy;
+                        } else {
+                            chunkReactions[j >>> blockShift].add(j, -forceOverR * dx, -forceOverR * dy);
+                        }
+                        virial += forceOverR * r2;
+                        if (withEnergy) {
+                            energy += potential.energy(r2);
+                        }
+                    }
+                }
+                fx[i] += fxi;
+                fy[i] += fyi;
+            }
+            sums[chunk][0] = energy;
+            sums[chunk][1] = virial;
+        }
+    }
+
+    /**
+     * Adds the reactions on one block of particles, in chunk order.
+     */
+    private final class Reducer extends RecursiveAction {
+
+        private final int block;
+
+        Reducer(int block) {
+            this.block = block;
+        }
+
+        @Override
+        protected void compute() {
+            double[] fx = store.fx();
+            double[] fy = store.fy();
+            for (int c = 0; c < chunks; ++c) {
+                var list = reactions[c][block];
+                for (int k = 0; k < list.size; ++k) {
+                    fx[list.indices[k]] += list.fx[k];
+                    fy[list.indices[k]] += list.fy[k];
+                }
+            }
+        }
+    }
+
+    private static final class InvokeAll extends RecursiveAction {
+
+        private final RecursiveAction[] tasks;
+
+        InvokeAll(RecursiveAction[] tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            for (var task : tasks) {
+                task.reinitialize();
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Growable list of forces on particles, reused between steps.
+     */
+    private static final class Reactions {
+
+        private int[] indices = new int[16];
+        private double[] fx = new double[16];
+        private double[] fy = new double[16];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(int index, double forceX, double forceY) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, 2 * size);
+                fx = Arrays.copyOf(fx, 2 * size);
+                fy = Arrays.copyOf(fy, 2 * size);
+            }
+            indices[size] = index;
+            fx[size] = forceX;
+            fy[size] = forceY;
+            ++size;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Structure-of-arrays particle state. Positions, velocities and the forces
+ * of the last force evaluation are kept in primitive arrays, so that stepping
+ * can update them in place without allocating. The accessors return the
+ * backing arrays, not copies. The pair sums of the last force evaluation,
+ * potential energy and virial, are kept alongside the forces.
+ */
+public final class ParticleStore {
+
+    private final int n;
+    private final double[] x;
+    private final double[] y;
+    private final double[] vx;
+    private final double[] vy;
+    private final double[] fx;
+    private final double[] fy;
+    private double potentialEnergy = Double.NaN;
+    private double virial = Double.NaN;
+
+    public ParticleStore(int n) {
+        this.n = n;
+        this.x = new double[n];
+        this.y = new double[n];
+        this.vx = new double[n];
+        this.vy = new double[n];
+        this.fx = new double[n];
+        this.fy = new double[n];
+    }
+
+    public static ParticleStore fromParticles(List<Particle> particles) {
+        var store = new ParticleStore(particles.size());
+        for (int i = 0; i < store.n; ++i) {
+            store.set(i, particles.get(i));
+        }
+        return store;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public double[] x() {
+        return x;
+    }
+
+    public double[] y() {
+        return y;
+    }
+
+    public double[] vx() {
+        return vx;
+    }
+
+    public double[] vy() {
+        return vy;
+    }
+
+    public double[] fx() {
+        return fx;
+    }
+
+    public double[] fy() {
+        return fy;
+    }
+
+    /**
+     * Potential energy at the last force evaluation, NaN if it was not requested.
+     */
+    public double potentialEnergy() {
+        return potentialEnergy;
+    }
+
+    /**
+     * Pair virial, the sum of r_ij · F_ij over all pairs, at the last force evaluation.
+     */
+    public double virial() {
+        return virial;
+    }
+
+    public void setPairSums(double potentialEnergy, double virial) {
+        this.potentialEnergy = potentialEnergy;
+        this.virial = virial;
+    }
+
+    public void set(int i, Particle particle) {
+        x[i] = particle.x();
+        y[i] = particle.y();
+        vx[i] = particle.vx();
+        vy[i] = particle.vy();
+    }
+
+    public Particle particle(int i) {
+        return new Particle(x[i], y[i], vx[i], vy[i]);
+    }
+
+    public void copyFrom(ParticleStore other) {
+        if (other.n != n) {
+            throw new IllegalArgumentException("Cannot copy " + other.n + " particles into a store of " + n);
+        }
+        System.arraycopy(other.x, 0, x, 0, n);
+        System.arraycopy(other.y, 0, y, 0, n);
+        System.arraycopy(other.vx, 0, vx, 0, n);
+        System.arraycopy(other.vy, 0, vy, 0, n);
+        System.arraycopy(other.fx, 0, fx, 0, n);
+        System.arraycopy(other.fy, 0, fy, 0, n);
+        potentialEnergy = other.potentialEnergy;
+        virial = other.virial;
+    }
+
+    /**
+     * Exports the current state as immutable particles, e.g. for the UI.
+     */
+    public List<Particle> toParticles() {
+        List<Particle> particles = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            particles.add(particle(i));
+        }
+        return particles;
+    }
+}
@@ -0,0 +1,50 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Untruncated Lennard-Jones potential evaluated in {@link BigDecimal}.
+ * Far too slow for stepping, kept as a reference to validate
+ * {@link LennardJones} against.
+ */
+public final class ReferenceLennardJones implements PairPotential {
+
+    private final double epsilon;
+    private final double sigma;
+
+    public ReferenceLennardJones(double epsilon, double sigma) {
+        this.epsilon = epsilon;
+        this.sigma = sigma;
+    }
+
+    @Override
+    public double energy(double r2) {
+        return potentialEnergy(epsilon, sigma, Math.sqrt(r2)).doubleValue();
+    }
+
+    @Override
+    public double forceOverR(double r2) {
+        var r = Math.sqrt(r2);
+        return force(epsilon, sigma, r).doubleValue() / r;
+    }
+
+    @Override
+    public double cutoff() {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    static BigDecimal force(double epsilon, double sigma, double r) {
+        BigDecimal ratio = BigDecimal.valueOf(sigma).divide(BigDecimal.valueOf(r), MathContext.DECIMAL128);
+        BigDecimal power12 = ratio.pow(12).multiply(BigDecimal.valueOf(12 / r));
+        BigDecimal power6 = ratio.pow(6).multiply(BigDecimal.valueOf(6 / r));
+        return power12.subtract(power6).multiply(BigDecimal.valueOf(4 * epsilon));
+    }
+
+    static BigDecimal potentialEnergy(double epsilon, double sigma, double r) {
+        BigDecimal ratio = BigDecimal.valueOf(sigma).divide(BigDecimal.valueOf(r), MathContext.DECIMAL128);
+        BigDecimal power12 = ratio.pow(12);
+        BigDecimal power6 = ratio.pow(6);
+        return power12.subtract(power6).multiply(BigDecimal.valueOf(4 * epsilon));
+    }
+}
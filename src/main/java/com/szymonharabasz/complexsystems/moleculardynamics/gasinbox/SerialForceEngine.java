@@ -0,0 +1,57 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import java.util.Arrays;
+
+/**
+ * Single-threaded force evaluation, applying each listed pair once with
+ * equal and opposite forces. The pair sums are kept in locals and handed to
+ * the store, so a step allocates nothing.
+ */
+final class SerialForceEngine implements ForceEngine {
+
+    static final SerialForceEngine INSTANCE = new SerialForceEngine();
+
+    private SerialForceEngine() { }
+
+    @Override
+    public void computeForces(ParticleStore store, PairPotential potential, NeighbourList neighbours, boolean withEnergy) {
+        int n = store.size();
+        double[] x = store.x();
+        double[] y = store.y();
+        double[] fx = store.fx();
+        double[] fy = store.fy();
+        Arrays.fill(fx, 0, n, 0.0);
+        Arrays.fill(fy, 0, n, 0.0);
+        double cutoff2 = potential.cutoffSquared();
+        int[] offsets = neighbours.offsets();
+        int[] partners = neighbours.partners();
+        double energy = 0.0;
+        double virial = 0.0;
+        for (int i = 0; i < n; ++i) {
+            var xi = x[i];
+            var yi = y[i];
+            double fxi = 0.0;
+            double fyi = 0.0;
+            for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                int j = partners[k];
+                var dx = xi - x[j];
+                var dy = yi - y[j];
+                var r2 = dx * dx + dy * dy;
+                if (r2 < cutoff2) {
+                    var forceOverR = potential.forceOverR(r2);
+                    fxi += forceOverR * dx;
+                    fyi += forceOverR * dy;
+                    fx[j] -= forceOverR * dx;
+                    fy[j] -= forceOverR * dy;
+                    virial += forceOverR * r2;
+                    if (withEnergy) {
+                        energy += potential.energy(r2);
+                    }
+                }
+            }
+            fx[i] += fxi;
+            fy[i] += fyi;
+        }
+        store.setPairSums(withEnergy ? energy : Double.NaN, virial);
+    }
+}
@@ -0,0 +1,125 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import java.util.Arrays;
+
+/**
+ * Grid of cells over the box [0, l] x [0, l] filled one particle at a time,
+ * for overlap checks against the particles placed so far that only look at
+ * the 3 x 3 cells around a candidate. Unlike {@link CellList} it does not
+ * need the full store up front; after particles were moved it is rebuilt
+ * with {@link #rehash(int)}.
+ */
+final class SpatialHash {
+
+    private final double minDistance2;
+    private final int cellsPerSide;
+    private final double cellSize;
+    private final int[] head;
+    private final int[] next;
+    private final double[] x;
+    private final double[] y;
+
+    SpatialHash(double l, double minDistance, double[] x, double[] y) {
+        this.minDistance2 = minDistance * minDistance;
+        this.x = x;
+        this.y = y;
+        int capacity = x.length;
+        var fitting = Math.floor(l / minDistance);
+        var enough = Math.ceil(Math.sqrt(2.0 * capacity));
+        this.cellsPerSide = (int) Math.max(1, Math.min(fitting, enough));
+        this.cellSize = l / cellsPerSide;
+        this.head = new int[cellsPerSide * cellsPerSide];
+        this.next = new int[capacity];
+        Arrays.fill(head, -1);
+    }
+
+    private int cellIndex(double coordinate) {
+        int index = (int) (coordinate / cellSize);
+        return Math.max(0, Math.min(cellsPerSide - 1, index));
+    }
+
+    /**
+     * Adds particle {@code i} at its current position in the coordinate arrays.
+     */
+    void insert(int i) {
+        int cell = cellIndex(y[i]) * cellsPerSide + cellIndex(x[i]);
+        next[i] = head[cell];
+        head[cell] = i;
+    }
+
+    /**
+     * Whether a particle at (px, py) would come closer than the minimum
+     * distance to any inserted particle other than {@code self}.
+     */
+    boolean overlaps(double px, double py, int self) {
+        int cx = cellIndex(px);
+        int cy = cellIndex(py);
+        for (int ny = Math.max(0, cy - 1); ny <= Math.min(cellsPerSide - 1, cy + 1); ++ny) {
+            for (int nx = Math.max(0, cx - 1); nx <= Math.min(cellsPerSide - 1, cx + 1); ++nx) {
+                for (int j = head[ny * cellsPerSide + nx]; j >= 0; j = next[j]) {
+                    var dx = px - x[j];
+                    var dy = py - y[j];
+                    if (j != self && dx * dx + dy * dy < minDistance2) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves every inserted particle apart from the neighbours it overlaps,
+     * by half the overlap each, keeping it inside [0, bound] x [0, bound], and
+     * rebuilds the grid. Returns the number of overlapping pairs found.
+     */
+    int separate(int count, double bound) {
+        var minDistance = Math.sqrt(minDistance2);
+        int overlaps = 0;
+        for (int i = 0; i < count; ++i) {
+            int cx = cellIndex(x[i]);
+            int cy = cellIndex(y[i]);
+            for (int ny = Math.max(0, cy - 1); ny <= Math.min(cellsPerSide - 1, cy + 1); ++ny) {
+                for (int nx = Math.max(0, cx - 1); nx <= Math.min(cellsPerSide - 1, cx + 1); ++nx) {
+                    for (int j = head[ny * cellsPerSide + nx]; j >= 0; j = next[j]) {
+                        if (j <= i) {
+                            continue;
+                        }
+                        var dx = x[i] - x[j];
+                        var dy = y[i] - y[j];
+                        var r2 = dx * dx + dy * dy;
+                        if (r2 >= minDistance2) {
+                            continue;
+                        }
+                        ++overlaps;
+                        var r = Math.sqrt(r2);
+                        if (r == 0.0) {
+                            dx = minDistance;
+                            dy = 0.0;
+                            r = minDistance;
+                        }
+                        // 1% of the distance extra, so that the pair does not end up just touching
+                        var push = ((minDistance - r) * 0.5 + minDistance * 1e-2) / r;
+                        x[i] = clamp(x[i] + dx * push, bound);
+                        y[i] = clamp(y[i] + dy * push, bound);
+                        x[j] = clamp(x[j] - dx * push, bound);
+                        y[j] = clamp(y[j] - dy * push, bound);
+                    }
+                }
+            }
+        }
+        rehash(count);
+        return overlaps;
+    }
+
+    void rehash(int count) {
+        Arrays.fill(head, -1);
+        for (int i = 0; i < count; ++i) {
+            insert(i);
+        }
+    }
+
+    private static double clamp(double coordinate, double bound) {
+        return Math.max(0.0, Math.min(bound, coordinate));
+    }
+}
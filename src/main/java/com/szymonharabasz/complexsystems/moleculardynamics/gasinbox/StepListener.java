@@ -0,0 +1,11 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+/**
+ * Called after every step of a run, with the state the step left behind.
+ * Listeners run on the stepping thread and must not keep the system.
+ */
+@FunctionalInterface
+public interface StepListener {
+
+    void afterStep(long step, GasInBoxSystem system);
+}
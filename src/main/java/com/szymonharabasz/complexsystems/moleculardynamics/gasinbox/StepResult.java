@@ -0,0 +1,15 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+/**
+ * Observables of one state of the gas: the kinetic and potential energy and
+ * the virial, all at the same time, so that their sum is the conserved total.
+ * {@link HardDiskGas} reports the collision virial of the interval before it.
+ */
+public record StepResult(double kineticEnergy, double potentialEnergy, double virial, double area) {
+    public double totalEnergy() { return kineticEnergy + potentialEnergy; }
+    /**
+     * Pressure from the two-dimensional virial theorem, P A = N k T + W / 2,
+     * with N k T equal to the kinetic energy.
+     */
+    public double pressure() { return (kineticEnergy + virial / 2) / area; }
+}
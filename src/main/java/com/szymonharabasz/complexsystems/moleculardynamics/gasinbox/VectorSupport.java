@@ -0,0 +1,43 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+/**
+ * Looks up the Vector API force engine, which lives in a separate source
+ * directory compiled only by the {@code vector} profile, so that the rest of
+ * the application neither needs the incubator module at compile time nor
+ * fails without it at run time.
+ */
+final class VectorSupport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VectorSupport.class);
+
+    private static final String MODULE = "jdk.incubator.vector";
+    private static final String ENGINE = "com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.VectorForceEngine";
+
+    private static final Optional<ForceEngine> ENGINE_INSTANCE = load();
+
+    private VectorSupport() { }
+
+    static Optional<ForceEngine> engine() {
+        return ENGINE_INSTANCE;
+    }
+
+    private static Optional<ForceEngine> load() {
+        if (ModuleLayer.boot().findModule(MODULE).isEmpty()) {
+            LOGGER.info("Module {} not present, using the scalar force kernel", MODULE);
+            return Optional.empty();
+        }
+        try {
+            var engine = (ForceEngine) Class.forName(ENGINE).getDeclaredConstructor().newInstance();
+            LOGGER.info("Using the Vector API force kernel");
+            return Optional.of(engine);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.info("Vector API force kernel not available, using the scalar one: {}", e.toString());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.analysis;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxSystem;
+
+/**
+ * Running estimate of an observable, updated from samples of a run in memory
+ * that does not grow with the run. Accumulators of the same configuration
+ * fed from different runs or threads can be merged into one.
+ */
+public interface Accumulator<A extends Accumulator<A>> {
+
+    void sample(GasInBoxSystem system);
+
+    /**
+     * Adds the samples of {@code other}, which must be configured the same way.
+     */
+    A merge(A other);
+
+    long samples();
+}
@@ -0,0 +1,72 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.analysis;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxSystem;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.StepListener;
+
+/**
+ * Feeds the speed distribution, g(r) and mean squared displacement from every
+ * {@code every}-th step of a run, e.g. as the listener of
+ * {@code GasInBoxService.evolve}. Pipelines of parallel runs with the same
+ * configuration merge into one.
+ */
+public final class AnalysisPipeline implements StepListener {
+
+    private final int every;
+    private final SpeedDistribution speeds;
+    private final RadialDistribution radialDistribution;
+    private final MeanSquaredDisplacement meanSquaredDisplacement;
+
+    public AnalysisPipeline(
+        int every, SpeedDistribution speeds, RadialDistribution radialDistribution,
+        MeanSquaredDisplacement meanSquaredDisplacement
+    ) {
+        if (every < 1) {
+            throw new IllegalArgumentException("Sampling interval must be positive, got " + every);
+        }
+        this.every = every;
+        this.speeds = speeds;
+        this.radialDistribution = radialDistribution;
+        this.meanSquaredDisplacement = meanSquaredDisplacement;
+    }
+
+    /**
+     * Pipeline with the usual binning: speeds up to six times the given
+     * component spread, g(r) up to the neighbour list cutoff and MSD over
+     * 100 samples.
+     */
+    public static AnalysisPipeline standard(int every, double dt, double sigmaV, double cutoff) {
+        return new AnalysisPipeline(
+            every,
+            new SpeedDistribution(6 * sigmaV, 100),
+            new RadialDistribution(cutoff, 100),
+            new MeanSquaredDisplacement(100, every * dt));
+    }
+
+    @Override
+    public void afterStep(long step, GasInBoxSystem system) {
+        if (step % every == 0) {
+            speeds.sample(system);
+            radialDistribution.sample(system);
+            meanSquaredDisplacement.sample(system);
+        }
+    }
+
+    public AnalysisPipeline merge(AnalysisPipeline other) {
+        speeds.merge(other.speeds);
+        radialDistribution.merge(other.radialDistribution);
+        meanSquaredDisplacement.merge(other.meanSquaredDisplacement);
+        return this;
+    }
+
+    public SpeedDistribution speeds() {
+        return speeds;
+    }
+
+    public RadialDistribution radialDistribution() {
+        return radialDistribution;
+    }
+
+    public MeanSquaredDisplacement meanSquaredDisplacement() {
+        return meanSquaredDisplacement;
+    }
+}
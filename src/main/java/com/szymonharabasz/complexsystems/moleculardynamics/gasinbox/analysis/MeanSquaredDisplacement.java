@@ -0,0 +1,108 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.analysis;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxSystem;
+
+/**
+ * Mean squared displacement for lags of 1 to {@code maxLag} samples, averaged
+ * over every sample as time origin. Only the positions of the last
+ * {@code maxLag} samples are kept, in a ring. With reflecting walls the
+ * displacement saturates at the box size for long lags.
+ */
+public final class MeanSquaredDisplacement implements Accumulator<MeanSquaredDisplacement> {
+
+    private final int maxLag;
+    private final double sampleInterval;
+    private final double[] sums;
+    private final long[] counts;
+    private double[][] xs;
+    private double[][] ys;
+    private int latest = -1;
+    private int stored;
+    private long samples;
+
+    /**
+     * @param sampleInterval time between samples, only used to report lags as times
+     */
+    public MeanSquaredDisplacement(int maxLag, double sampleInterval) {
+        if (maxLag < 1) {
+            throw new IllegalArgumentException("Maximum lag must be positive, got " + maxLag);
+        }
+        this.maxLag = maxLag;
+        this.sampleInterval = sampleInterval;
+        this.sums = new double[maxLag + 1];
+        this.counts = new long[maxLag + 1];
+    }
+
+    @Override
+    public void sample(GasInBoxSystem system) {
+        var store = system.store();
+        int n = store.size();
+        if (xs == null || xs[0].length != n) {
+            xs = new double[maxLag][n];
+            ys = new double[maxLag][n];
+            latest = -1;
+            stored = 0;
+        }
+        double[] x = store.x();
+        double[] y = store.y();
+        for (int lag = 1; lag <= stored; ++lag) {
+            int origin = Math.floorMod(latest - lag + 1, maxLag);
+            double[] x0 = xs[origin];
+            double[] y0 = ys[origin];
+            double sum = 0.0;
+            for (int i = 0; i < n; ++i) {
+                var dx = x[i] - x0[i];
+                var dy = y[i] - y0[i];
+                sum += dx * dx + dy * dy;
+            }
+            sums[lag] += sum / n;
+            counts[lag]++;
+        }
+        latest = (latest + 1) % maxLag;
+        System.arraycopy(x, 0, xs[latest], 0, n);
+        System.arraycopy(y, 0, ys[latest], 0, n);
+        stored = Math.min(maxLag, stored + 1);
+        ++samples;
+    }
+
+    /**
+     * Adds the averages of another run; the lags do not span the two runs.
+     */
+    @Override
+    public MeanSquaredDisplacement merge(MeanSquaredDisplacement other) {
+        if (other.maxLag != maxLag) {
+            throw new IllegalArgumentException("Cannot merge MSD with different maximum lags");
+        }
+        for (int lag = 1; lag <= maxLag; ++lag) {
+            sums[lag] += other.sums[lag];
+            counts[lag] += other.counts[lag];
+        }
+        samples += other.samples;
+        return this;
+    }
+
+    @Override
+    public long samples() {
+        return samples;
+    }
+
+    public int maxLag() {
+        return maxLag;
+    }
+
+    public double time(int lag) {
+        return lag * sampleInterval;
+    }
+
+    public double msd(int lag) {
+        return counts[lag] == 0 ? Double.NaN : sums[lag] / counts[lag];
+    }
+
+    /**
+     * Diffusion coefficient from the two-dimensional Einstein relation at the
+     * given lag, MSD / 4t.
+     */
+    public double diffusionCoefficient(int lag) {
+        return msd(lag) / (4 * time(lag));
+    }
+}
@@ -0,0 +1,99 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.analysis;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxSystem;
+
+/**
+ * Pair distribution function g(r) up to {@code rMax}, counted over the pairs
+ * of the system's neighbour list, so {@code rMax} may not exceed the list's
+ * cutoff. The normalisation assumes a homogeneous density n / l², so close
+ * to the reflecting walls, where particles have fewer neighbours, g(r) comes
+ * out a little low at larger r.
+ */
+public final class RadialDistribution implements Accumulator<RadialDistribution> {
+
+    private final double rMax;
+    private final double binWidth;
+    private final long[] pairs;
+    private double particleSamples;
+    private double density;
+    private long samples;
+
+    public RadialDistribution(double rMax, int bins) {
+        if (bins < 1 || !(rMax > 0)) {
+            throw new IllegalArgumentException("Invalid binning: " + bins + " bins up to " + rMax);
+        }
+        this.rMax = rMax;
+        this.binWidth = rMax / bins;
+        this.pairs = new long[bins];
+    }
+
+    @Override
+    public void sample(GasInBoxSystem system) {
+        var neighbours = system.neighbours();
+        if (rMax > neighbours.cutoff()) {
+            throw new IllegalStateException("g(r) up to " + rMax + " needs pairs beyond the neighbour list cutoff " + neighbours.cutoff());
+        }
+        var store = system.store();
+        neighbours.update(store);
+        int n = store.size();
+        double[] x = store.x();
+        double[] y = store.y();
+        int[] offsets = neighbours.offsets();
+        int[] partners = neighbours.partners();
+        var rMax2 = rMax * rMax;
+        for (int i = 0; i < n; ++i) {
+            for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                int j = partners[k];
+                var dx = x[i] - x[j];
+                var dy = y[i] - y[j];
+                var r2 = dx * dx + dy * dy;
+                if (r2 < rMax2) {
+                    pairs[Math.min(pairs.length - 1, (int) (Math.sqrt(r2) / binWidth))]++;
+                }
+            }
+        }
+        particleSamples += n;
+        density = n / (system.l() * system.l());
+        ++samples;
+    }
+
+    @Override
+    public RadialDistribution merge(RadialDistribution other) {
+        if (other.pairs.length != pairs.length || other.rMax != rMax) {
+            throw new IllegalArgumentException("Cannot merge g(r) with different binning");
+        }
+        for (int bin = 0; bin < pairs.length; ++bin) {
+            pairs[bin] += other.pairs[bin];
+        }
+        particleSamples += other.particleSamples;
+        if (samples == 0) {
+            density = other.density;
+        }
+        samples += other.samples;
+        return this;
+    }
+
+    @Override
+    public long samples() {
+        return samples;
+    }
+
+    public int bins() {
+        return pairs.length;
+    }
+
+    public double r(int bin) {
+        return (bin + 0.5) * binWidth;
+    }
+
+    /**
+     * Neighbours per particle in the ring of the bin, relative to an ideal gas
+     * of the same density. Every listed pair counts for both its particles.
+     */
+    public double g(int bin) {
+        var inner = bin * binWidth;
+        var outer = inner + binWidth;
+        var ring = Math.PI * (outer * outer - inner * inner);
+        return 2 * pairs[bin] / (particleSamples * density * ring);
+    }
+}
@@ -0,0 +1,82 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.analysis;
+
+import com.szymonharabasz.complexsystems.common.Histogram;
+import com.szymonharabasz.complexsystems.common.RunningStatistics;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxSystem;
+
+/**
+ * Histogram of the particle speeds, with the temperature measured from the
+ * same samples for comparison with the two-dimensional Maxwell-Boltzmann
+ * distribution f(v) = (m v / kT) exp(-m v² / 2kT).
+ */
+public final class SpeedDistribution implements Accumulator<SpeedDistribution> {
+
+    private final Histogram speeds;
+    private final RunningStatistics squaredSpeed = new RunningStatistics();
+    private double m = Double.NaN;
+    private long samples;
+
+    public SpeedDistribution(double maxSpeed, int bins) {
+        this.speeds = new Histogram(0.0, maxSpeed, bins);
+    }
+
+    @Override
+    public void sample(GasInBoxSystem system) {
+        m = system.m();
+        var store = system.store();
+        double[] vx = store.vx();
+        double[] vy = store.vy();
+        for (int i = 0; i < store.size(); ++i) {
+            var v2 = vx[i] * vx[i] + vy[i] * vy[i];
+            speeds.add(Math.sqrt(v2));
+            squaredSpeed.add(v2);
+        }
+        ++samples;
+    }
+
+    @Override
+    public SpeedDistribution merge(SpeedDistribution other) {
+        speeds.merge(other.speeds);
+        squaredSpeed.merge(other.squaredSpeed);
+        if (Double.isNaN(m)) {
+            m = other.m;
+        }
+        samples += other.samples;
+        return this;
+    }
+
+    @Override
+    public long samples() {
+        return samples;
+    }
+
+    public Histogram histogram() {
+        return speeds;
+    }
+
+    /**
+     * kT from equipartition in two dimensions, m⟨v²⟩ / 2.
+     */
+    public double temperature() {
+        return m * squaredSpeed.mean() / 2;
+    }
+
+    public double maxwellBoltzmann(double v) {
+        var kT = temperature();
+        return m * v / kT * Math.exp(-m * v * v / (2 * kT));
+    }
+
+    /**
+     * Half the summed absolute difference between the measured and the
+     * Maxwell-Boltzmann probability of each bin, 0 for a perfect match and
+     * at most 1.
+     */
+    public double distanceFromMaxwellBoltzmann() {
+        double distance = 0.0;
+        for (int bin = 0; bin < speeds.bins(); ++bin) {
+            var expected = maxwellBoltzmann(speeds.binCenter(bin)) * speeds.binWidth();
+            distance += Math.abs(speeds.density(bin) * speeds.binWidth() - expected);
+        }
+        return distance / 2;
+    }
+}
@@ -0,0 +1,212 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.trajectory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.Particle;
+
+/**
+ * In-memory history of particle positions for scrubbing back through a run.
+ * Positions are rounded to a grid of spacing {@code 2 maxError}, so no
+ * decoded coordinate is further than {@code maxError} from the original one.
+ * Every {@value #KEYFRAME_INTERVAL}th frame is kept as grid indices and the
+ * frames between as zigzag varint differences from the frame before, which
+ * for a gas stepped in small steps is one byte per coordinate instead of the
+ * eight of a double and the object headers of a {@link Particle}.
+ * <p>
+ * Frames are kept in segments starting with a keyframe, and whole segments
+ * are dropped, oldest first, once the history exceeds its byte budget.
+ * Decoding any frame reads its keyframe and at most
+ * {@value #KEYFRAME_INTERVAL} - 1 deltas. Velocities are not kept. Methods are
+ * synchronized, so one thread can append while others decode.
+ */
+public final class CompactHistory {
+
+    static final int KEYFRAME_INTERVAL = 32;
+
+    private final int n;
+    private final double spacing;
+    private final long maxBytes;
+    private final List<Segment> segments = new ArrayList<>();
+    private final int[] previous;
+    private long firstFrame;
+    private int size;
+    private long bytes;
+
+    /**
+     * @param n number of particles in every frame
+     * @param maxError largest difference between a stored and a decoded coordinate
+     * @param maxBytes budget for the encoded frames, at least one segment is always kept
+     */
+    public CompactHistory(int n, double maxError, long maxBytes) {
+        if (maxError <= 0) {
+            throw new IllegalArgumentException("Maximum error must be positive, got " + maxError);
+        }
+        this.n = n;
+        this.spacing = 2 * maxError;
+        this.maxBytes = maxBytes;
+        this.previous = new int[2 * n];
+    }
+
+    public synchronized void append(long step, List<Particle> particles) {
+        if (particles.size() != n) {
+            throw new IllegalArgumentException("Expected " + n + " particles, got " + particles.size());
+        }
+        var last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last == null || last.frames == KEYFRAME_INTERVAL) {
+            last = new Segment(n);
+            segments.add(last);
+            for (int i = 0; i < n; ++i) {
+                previous[2 * i] = quantise(particles.get(i).x());
+                previous[2 * i + 1] = quantise(particles.get(i).y());
+            }
+            System.arraycopy(previous, 0, last.keyframe, 0, 2 * n);
+            bytes += last.keyframe.length * (long) Integer.BYTES;
+        } else {
+            int before = last.length;
+            for (int i = 0; i < n; ++i) {
+                last.putDelta(2 * i, quantise(particles.get(i).x()), previous);
+                last.putDelta(2 * i + 1, quantise(particles.get(i).y()), previous);
+            }
+            bytes += last.length - before;
+        }
+        last.steps[last.frames++] = step;
+        bytes += Long.BYTES;
+        ++size;
+        if (last.frames == KEYFRAME_INTERVAL) {
+            last.trim();
+        }
+        while (bytes > maxBytes && segments.size() > 1) {
+            var dropped = segments.remove(0);
+            bytes -= dropped.bytes();
+            size -= dropped.frames;
+            firstFrame += dropped.frames;
+        }
+    }
+
+    /**
+     * Number of frames kept.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Number of frames appended since the start, including dropped ones.
+     */
+    public synchronized long appended() {
+        return firstFrame + size;
+    }
+
+    /**
+     * Bytes taken by the encoded frames.
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public double maxError() {
+        return spacing / 2;
+    }
+
+    /**
+     * Simulation step of the i-th kept frame, counting from the oldest one.
+     */
+    public synchronized long step(int i) {
+        checkIndex(i);
+        return segment(i).steps[i % KEYFRAME_INTERVAL];
+    }
+
+    /**
+     * Decodes the positions of the i-th kept frame, counting from the oldest one.
+     */
+    public synchronized void decode(int i, double[] x, double[] y) {
+        checkIndex(i);
+        var segment = segment(i);
+        var indices = Arrays.copyOf(segment.keyframe, 2 * n);
+        int position = 0;
+        for (int frame = 1; frame <= i % KEYFRAME_INTERVAL; ++frame) {
+            for (int c = 0; c < 2 * n; ++c) {
+                int zigzag = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = segment.data[position++];
+                    zigzag |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                indices[c] += (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        for (int p = 0; p < n; ++p) {
+            x[p] = indices[2 * p] * spacing;
+            y[p] = indices[2 * p + 1] * spacing;
+        }
+    }
+
+    /**
+     * The i-th kept frame as particles at rest, e.g. for drawing.
+     */
+    public List<Particle> particles(int i) {
+        var x = new double[n];
+        var y = new double[n];
+        decode(i, x, y);
+        List<Particle> particles = new ArrayList<>(n);
+        for (int p = 0; p < n; ++p) {
+            particles.add(new Particle(x[p], y[p], 0, 0));
+        }
+        return particles;
+    }
+
+    private int quantise(double coordinate) {
+        return (int) Math.round(coordinate / spacing);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Frame " + i + " of " + size);
+        }
+    }
+
+    private Segment segment(int i) {
+        // Only the oldest segment is ever dropped, so all segments but the last are full
+        return segments.get(i / KEYFRAME_INTERVAL);
+    }
+
+    private static final class Segment {
+
+        private final int[] keyframe;
+        private final long[] steps = new long[KEYFRAME_INTERVAL];
+        private byte[] data;
+        private int length;
+        private int frames;
+
+        Segment(int n) {
+            this.keyframe = new int[2 * n];
+            this.data = new byte[2 * n];
+        }
+
+        void putDelta(int c, int index, int[] previous) {
+            int delta = index - previous[c];
+            previous[c] = index;
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(length + 5, 2 * data.length));
+            }
+            while ((zigzag & ~0x7F) != 0) {
+                data[length++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            data[length++] = (byte) zigzag;
+        }
+
+        void trim() {
+            data = Arrays.copyOf(data, length);
+        }
+
+        long bytes() {
+            return keyframe.length * (long) Integer.BYTES + length + (long) frames * Long.BYTES;
+        }
+    }
+}
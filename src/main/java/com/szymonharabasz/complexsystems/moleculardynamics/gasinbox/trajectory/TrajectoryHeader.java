@@ -0,0 +1,100 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.trajectory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.LennardJones;
+
+/**
+ * Parameters of a recorded run, stored at the start of a trajectory file,
+ * the Lennard-Jones cutoff and truncation included, so that a resumed run
+ * continues with the same potential. The header is followed by fixed-stride
+ * frames, each holding the step number and the x, y, vx and vy columns of
+ * all particles, so that frame k starts {@code k * frameStride()} after the header.
+ * Version 1 files, with a shorter header and no potential, are still read,
+ * as the default potential of {@link LennardJones#of(double, double)} they
+ * were recorded with.
+ */
+public record TrajectoryHeader(
+    int n, double l, double m, double epsilon, double sigma, double dt,
+    double cutoff, LennardJones.Truncation truncation
+) {
+
+    static final int MAGIC = 0x47494254;
+    static final int VERSION = 2;
+    static final int SIZE = 72;
+    static final int FRAME_COUNT_OFFSET = 56;
+    private static final int VERSION_1_SIZE = 64;
+
+    /**
+     * Header of a run with the default potential of {@link LennardJones#of(double, double)}.
+     */
+    public TrajectoryHeader(int n, double l, double m, double epsilon, double sigma, double dt) {
+        this(n, l, m, epsilon, sigma, dt, LennardJones.DEFAULT_CUTOFF * sigma, LennardJones.Truncation.SHIFTED);
+    }
+
+    public static TrajectoryHeader of(int n, double l, double m, LennardJones potential, double dt) {
+        return new TrajectoryHeader(
+            n, l, m, potential.epsilon(), potential.sigma(), dt, potential.cutoff(), potential.truncation());
+    }
+
+    public LennardJones potential() {
+        return new LennardJones(epsilon, sigma, cutoff, truncation);
+    }
+
+    public long frameStride() {
+        return Long.BYTES + 4L * Double.BYTES * n;
+    }
+
+    void write(ByteBuffer buffer) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, n);
+        buffer.putInt(12, truncation.ordinal());
+        buffer.putDouble(16, l);
+        buffer.putDouble(24, m);
+        buffer.putDouble(32, epsilon);
+        buffer.putDouble(40, sigma);
+        buffer.putDouble(48, dt);
+        buffer.putDouble(64, cutoff);
+    }
+
+    static TrajectoryHeader read(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < VERSION_1_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a gas trajectory file");
+        }
+        var version = buffer.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported trajectory version " + version);
+        }
+        var n = buffer.getInt(8);
+        var l = buffer.getDouble(16);
+        var m = buffer.getDouble(24);
+        var epsilon = buffer.getDouble(32);
+        var sigma = buffer.getDouble(40);
+        var dt = buffer.getDouble(48);
+        if (version == 1) {
+            return new TrajectoryHeader(n, l, m, epsilon, sigma, dt);
+        }
+        var truncations = LennardJones.Truncation.values();
+        var truncation = buffer.getInt(12);
+        if (buffer.limit() < SIZE || truncation < 0 || truncation >= truncations.length) {
+            throw new IOException("Corrupt trajectory header");
+        }
+        return new TrajectoryHeader(n, l, m, epsilon, sigma, dt, buffer.getDouble(64), truncations[truncation]);
+    }
+
+    /**
+     * Bytes taken by the header in the given buffer, where the frames start.
+     */
+    static int size(ByteBuffer buffer) {
+        return buffer.getInt(4) == 1 ? VERSION_1_SIZE : SIZE;
+    }
+
+    /**
+     * Bytes of the header to map, no more than the file has.
+     */
+    static long mappedSize(long fileSize) {
+        return Math.min(SIZE, fileSize);
+    }
+}
@@ -0,0 +1,90 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.trajectory;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.Particle;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.ParticleStore;
+
+/**
+ * Random access to the frames of a trajectory file. Frames are read from
+ * read-only mappings of up to {@link TrajectoryWriter#MAX_REGION_BYTES},
+ * remapped when a frame outside the current one is requested.
+ */
+public class TrajectoryReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final TrajectoryHeader header;
+    private final long framesOffset;
+    private final long frameCount;
+    private final long framesPerRegion;
+    private MappedByteBuffer region;
+    private long regionFirstFrame = -1;
+
+    public TrajectoryReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        var headerBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, TrajectoryHeader.mappedSize(channel.size()))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        header = TrajectoryHeader.read(headerBuffer);
+        framesOffset = TrajectoryHeader.size(headerBuffer);
+        var stride = header.frameStride();
+        var complete = (channel.size() - framesOffset) / stride;
+        frameCount = Math.min(headerBuffer.getLong(TrajectoryHeader.FRAME_COUNT_OFFSET), complete);
+        framesPerRegion = Math.max(1, TrajectoryWriter.MAX_REGION_BYTES / stride);
+    }
+
+    public TrajectoryHeader header() {
+        return header;
+    }
+
+    public long frameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Reads frame {@code index} into the given store and returns its step number.
+     */
+    public long read(long index, ParticleStore store) throws IOException {
+        if (index < 0 || index >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + index + " of " + frameCount);
+        }
+        if (store.size() != header.n()) {
+            throw new IllegalArgumentException("Trajectory has " + header.n() + " particles, store " + store.size());
+        }
+        if (regionFirstFrame < 0 || index < regionFirstFrame || index >= regionFirstFrame + framesPerRegion) {
+            regionFirstFrame = index - index % framesPerRegion;
+            var frames = Math.min(framesPerRegion, frameCount - regionFirstFrame);
+            region = channel.map(
+                FileChannel.MapMode.READ_ONLY,
+                framesOffset + regionFirstFrame * header.frameStride(),
+                frames * header.frameStride());
+            region.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        int offset = (int) ((index - regionFirstFrame) * header.frameStride());
+        int n = header.n();
+        var step = region.getLong(offset);
+        var columns = region.slice(offset + Long.BYTES, 4 * n * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        columns.get(store.x(), 0, n);
+        columns.get(store.y(), 0, n);
+        columns.get(store.vx(), 0, n);
+        columns.get(store.vy(), 0, n);
+        return step;
+    }
+
+    public List<Particle> read(long index) throws IOException {
+        var store = new ParticleStore(header.n());
+        read(index, store);
+        return store.toParticles();
+    }
+
+    @Override
+    public void close() throws IOException {
+        region = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,164 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.trajectory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.Particle;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.ParticleStore;
+
+/**
+ * Appends frames to a trajectory file through memory-mapped regions of
+ * whole frames. The frame count in the header is updated after each frame
+ * is complete, so a file cut short by a crash still ends on its last
+ * complete frame and can be reopened to continue the run.
+ */
+public class TrajectoryWriter implements AutoCloseable {
+
+    static final long MAX_REGION_BYTES = 64L * 1024 * 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrajectoryWriter.class);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final TrajectoryHeader header;
+    private final MappedByteBuffer headerBuffer;
+    private final long framesOffset;
+    private final long framesPerRegion;
+    private MappedByteBuffer region;
+    private long regionFirstFrame = -1;
+    private long frameCount;
+
+    private TrajectoryWriter(Path path, FileChannel channel, TrajectoryHeader header, MappedByteBuffer headerBuffer, long frameCount) {
+        this.path = path;
+        this.channel = channel;
+        this.header = header;
+        this.headerBuffer = headerBuffer;
+        this.framesOffset = TrajectoryHeader.size(headerBuffer);
+        this.frameCount = frameCount;
+        this.framesPerRegion = Math.max(1, MAX_REGION_BYTES / header.frameStride());
+    }
+
+    /**
+     * Creates a new trajectory file, replacing any existing one.
+     */
+    public static TrajectoryWriter create(Path path, TrajectoryHeader header) throws IOException {
+        var channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var headerBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, TrajectoryHeader.SIZE);
+        headerBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        header.write(headerBuffer);
+        headerBuffer.putLong(TrajectoryHeader.FRAME_COUNT_OFFSET, 0);
+        return new TrajectoryWriter(path, channel, header, headerBuffer, 0);
+    }
+
+    /**
+     * Opens an existing trajectory file for appending after its last complete frame.
+     */
+    public static TrajectoryWriter append(Path path) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var headerBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, TrajectoryHeader.mappedSize(channel.size()));
+        headerBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        var header = TrajectoryHeader.read(headerBuffer);
+        var complete = (channel.size() - TrajectoryHeader.size(headerBuffer)) / header.frameStride();
+        var frameCount = Math.min(headerBuffer.getLong(TrajectoryHeader.FRAME_COUNT_OFFSET), complete);
+        return new TrajectoryWriter(path, channel, header, headerBuffer, frameCount);
+    }
+
+    public TrajectoryHeader header() {
+        return header;
+    }
+
+    public long frameCount() {
+        return frameCount;
+    }
+
+    /**
+     * The last frame written, the checkpoint to restart from.
+     */
+    public List<Particle> lastFrame() throws IOException {
+        if (frameCount == 0) {
+            throw new IllegalStateException("Trajectory " + path + " has no frames");
+        }
+        try (var reader = new TrajectoryReader(path)) {
+            return reader.read(frameCount - 1);
+        }
+    }
+
+    public void append(long step, ParticleStore store) {
+        int n = header.n();
+        if (store.size() != n) {
+            throw new IllegalArgumentException("Trajectory has " + n + " particles, store " + store.size());
+        }
+        var stride = header.frameStride();
+        try {
+            if (regionFirstFrame < 0 || frameCount >= regionFirstFrame + framesPerRegion) {
+                regionFirstFrame = frameCount;
+                region = channel.map(
+                    FileChannel.MapMode.READ_WRITE,
+                    framesOffset + regionFirstFrame * stride,
+                    framesPerRegion * stride);
+                region.order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int offset = (int) ((frameCount - regionFirstFrame) * stride);
+        region.putLong(offset, step);
+        var columns = region.slice(offset + Long.BYTES, 4 * n * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        columns.put(store.x(), 0, n);
+        columns.put(store.y(), 0, n);
+        columns.put(store.vx(), 0, n);
+        columns.put(store.vy(), 0, n);
+        ++frameCount;
+        headerBuffer.putLong(TrajectoryHeader.FRAME_COUNT_OFFSET, frameCount);
+    }
+
+    /**
+     * Appends a frame numbered after the frames already in the file.
+     */
+    public void append(List<Particle> particles) {
+        append(frameCount, ParticleStore.fromParticles(particles));
+    }
+
+    /**
+     * Flushes the mapped frames to the storage device, for checkpoints that
+     * must survive a machine crash and not only a process crash.
+     */
+    public void force() {
+        if (region != null) {
+            region.force();
+        }
+        headerBuffer.force();
+    }
+
+    /**
+     * Flushes the file and trims the unused tail of the last mapped region.
+     */
+    @Override
+    public void close() {
+        try {
+            force();
+            region = null;
+            channel.truncate(framesOffset + frameCount * header.frameStride());
+        } catch (IOException e) {
+            // the tail is ignored by readers, so an untrimmed file is still valid
+            LOGGER.warn("Could not trim trajectory {}: {}", path, e.getMessage());
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close trajectory {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
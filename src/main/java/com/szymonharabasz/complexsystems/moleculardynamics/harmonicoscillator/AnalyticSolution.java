@@ -0,0 +1,83 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator;
+
+/**
+ * Closed-form solution of the damped oscillator, in units of its amplitude
+ * when underdamped and of the initial position otherwise (see {@link #scale()}),
+ * with the constants of the underdamped, critical or overdamped case
+ * computed once.
+ */
+final class AnalyticSolution {
+
+    private static final double CRITICAL_TOLERANCE = 1e-4;
+
+    private enum Regime { UNDERDAMPED, CRITICAL, OVERDAMPED }
+
+    private final Regime regime;
+    private final double omega;
+    private final double phi;
+    private final double b2m;
+    private final double a1;
+    private final double a2;
+    private final double l1;
+    private final double l2;
+    private final double scale;
+
+    AnalyticSolution(HarmonicOscillatorProperties oscillator) {
+        this.omega = oscillator.omega();
+        this.phi = oscillator.phi();
+        this.b2m = oscillator.b2m();
+        if (Math.abs(oscillator.b() - 1.0) < CRITICAL_TOLERANCE) {
+            this.regime = Regime.CRITICAL;
+            this.a1 = 1.;
+            this.a2 = (oscillator.v0() + b2m * oscillator.r0())/oscillator.r0();
+            this.l1 = 0.0;
+            this.l2 = 0.0;
+            this.scale = oscillator.r0();
+        } else if (oscillator.b() < 1.0) {
+            this.regime = Regime.UNDERDAMPED;
+            this.a1 = 0.0;
+            this.a2 = 0.0;
+            this.l1 = 0.0;
+            this.l2 = 0.0;
+            this.scale = oscillator.amplitude();
+        } else {
+            this.regime = Regime.OVERDAMPED;
+            var delta = b2m * b2m - oscillator.k() / oscillator.m();
+            this.l1 = -b2m + Math.sqrt(delta);
+            this.l2 = -b2m - Math.sqrt(delta);
+            this.a1 = 0.5 * (1.0 + (oscillator.v0() + b2m * oscillator.r0())/Math.sqrt(delta)/oscillator.r0());
+            this.a2 = 0.5 * (1.0 - (oscillator.v0() + b2m * oscillator.r0())/Math.sqrt(delta)/oscillator.r0());
+            this.scale = oscillator.r0();
+        }
+    }
+
+    /**
+     * Length unit of {@link #x(double)} and {@link #v(double)}.
+     */
+    double scale() {
+        return scale;
+    }
+
+    /**
+     * Angular frequency of the oscillation, NaN if not underdamped.
+     */
+    double omega() {
+        return regime == Regime.UNDERDAMPED ? omega : Double.NaN;
+    }
+
+    double x(double t) {
+        return switch (regime) {
+            case CRITICAL -> (a1 + a2*t) * Math.exp(-b2m * t);
+            case UNDERDAMPED -> Math.exp(-b2m * t) * Math.cos(omega * t - phi);
+            case OVERDAMPED -> a1 * Math.exp(l1 * t) + a2 * Math.exp(l2 * t);
+        };
+    }
+
+    double v(double t) {
+        return switch (regime) {
+            case CRITICAL -> (a2 - b2m * (a1 + a2*t)) * Math.exp(-b2m * t);
+            case UNDERDAMPED -> -Math.exp(-b2m * t) * (b2m * Math.cos(omega * t - phi) + omega * Math.sin(omega * t - phi));
+            case OVERDAMPED -> l1 * a1 * Math.exp(l1 * t) + l2 * a2 * Math.exp(l2 * t);
+        };
+    }
+}
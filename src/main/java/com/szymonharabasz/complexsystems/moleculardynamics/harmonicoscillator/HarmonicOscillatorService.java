@@ -2,6 +2,7 @@ package com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator;
 
 import java.util.Collections;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -9,6 +10,8 @@ import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.Integrator;
+
 import jakarta.enterprise.context.Dependent;
 
 @Dependent
@@ -20,62 +23,145 @@ public class HarmonicOscillatorService {
     public Stream<PhaseSpacePoint> analytic(
         HarmonicOscillatorProperties oscillator, double dt
     ) {
-        var omega = oscillator.omega();
-        var phi = oscillator.phi();
-        var b2m = oscillator.b2m();
+        var solution = new AnalyticSolution(oscillator);
         return xs(dt).map(t -> {
-            if (Math.abs(oscillator.b() - 1.0) < SMALL ) {
-                var a1 = 1.;
-                var a2 = (oscillator.v0() + b2m * oscillator.r0())/oscillator.r0();
-                var x = (a1 + a2*t) * Math.exp(-b2m * t);
-                var v = (a2 - b2m * (a1 + a2*t)) * Math.exp(-b2m * t);
-                return new PhaseSpacePoint(x, v, totalEnergy(oscillator.m(), oscillator.k(), x, v));
-            } else if (oscillator.b() < 1.0) {
-                var x = Math.exp(-b2m * t) * Math.cos(omega * t - phi);
-                var v = -Math.exp(-b2m * t) * (b2m * Math.cos(omega * t - phi) + omega * Math.sin(omega * t - phi));
-                return new PhaseSpacePoint(x, v, totalEnergy(oscillator.m(), oscillator.k(), x, v));
-            } else {
-                var delta = b2m * b2m - oscillator.k() / oscillator.m();
-                var l1 = -b2m + Math.sqrt(delta);
-                var l2 = -b2m - Math.sqrt(delta);
-                var a1 = 0.5 * (1.0 + (oscillator.v0() + b2m * oscillator.r0())/Math.sqrt(delta)/oscillator.r0());
-                var a2 = 0.5 * (1.0 - (oscillator.v0() + b2m * oscillator.r0())/Math.sqrt(delta)/oscillator.r0());
-                var x = a1 * Math.exp(l1 * t) + a2 * Math.exp(l2 * t);
-                var v = l1 * a1 * Math.exp(l1 * t) + l2 * a2 * Math.exp(l2 * t);
-                return new PhaseSpacePoint(x, v, totalEnergy(oscillator.m(), oscillator.k(), x, v));
+            var x = solution.x(t);
+            var v = solution.v(t);
+            return new PhaseSpacePoint(x, v, totalEnergy(oscillator.m(), oscillator.k(), x, v));
+        });
+    }
 
-            }
+    /**
+     * Fills {@code into} with the analytic solution at t = i * dt, in units of the amplitude.
+     */
+    public void analytic(HarmonicOscillatorProperties oscillator, double dt, Trend into) {
+        var solution = new AnalyticSolution(oscillator);
+        double[] xs = into.x();
+        double[] vs = into.v();
+        double[] es = into.energy();
+        for (int i = 0; i < into.length(); ++i) {
+            var t = i * dt;
+            xs[i] = solution.x(t);
+            vs[i] = solution.v(t);
+            es[i] = totalEnergy(oscillator.m(), oscillator.k(), xs[i], vs[i]);
+        }
+    }
+
+    /**
+     * Fills {@code into} with an explicit Euler run starting from the initial condition.
+     */
+    public void euler(HarmonicOscillatorProperties oscillator, double dt, Trend into) {
+        integrate(oscillator, dt, Integrator.euler(), into);
+    }
+
+    /**
+     * Fills {@code into} with a leapfrog run starting from the initial condition.
+     */
+    public void leapfrog(HarmonicOscillatorProperties oscillator, double dt, Trend into) {
+        integrate(oscillator, dt, Integrator.positionVerlet(), into);
+    }
+
+    /**
+     * Fills {@code into} with a run of the given integrator starting from the
+     * initial condition.
+     */
+    public void integrate(HarmonicOscillatorProperties oscillator, double dt, Integrator integrator, Trend into) {
+        double[] xs = into.x();
+        double[] vs = into.v();
+        double[] es = into.energy();
+        var system = new OscillatorBatch(1);
+        system.set(0, oscillator, dt);
+        for (int i = 0; i < into.length(); ++i) {
+            xs[i] = system.x[0];
+            vs[i] = system.v[0];
+            es[i] = system.energy(0);
+            integrator.step(system, 1.0);
+        }
+    }
+
+    public Stream<PhaseSpacePoint> euler(HarmonicOscillatorProperties oscillator, double dt) {
+        return evolve(oscillator, dt, Integrator.euler());
+    }
+
+    public Stream<PhaseSpacePoint> leapfrog(HarmonicOscillatorProperties oscillator, double dt) {
+        return evolve(oscillator, dt, Integrator.positionVerlet());
+    }
+
+    /**
+     * Run of the given integrator from the initial condition, one point per
+     * time step, stepped as the stream is consumed.
+     */
+    public Stream<PhaseSpacePoint> evolve(HarmonicOscillatorProperties oscillator, double dt, Integrator integrator) {
+        var system = new OscillatorBatch(1);
+        system.set(0, oscillator, dt);
+        var initial = new PhaseSpacePoint(system.x[0], system.v[0], system.energy(0));
+        return Stream.iterate(initial, previous -> {
+            integrator.step(system, 1.0);
+            return new PhaseSpacePoint(system.x[0], system.v[0], system.energy(0));
         });
     }
 
-    public Stream<PhaseSpacePoint> euler(
-        HarmonicOscillatorProperties oscillator, double dt
-    ) {
-        return Stream
-            .iterate(
-                new PhaseSpacePoint(oscillator.r0(), oscillator.v0(), totalEnergy(oscillator)), 
-                p -> {
-                    var f = -oscillator.k() * p.x() - oscillator.bVal() * p.v(); 
-                    var x = p.x() + p.v() * dt;
-                    var v = p.v() + f / oscillator.m() * dt;
-                    return new PhaseSpacePoint(x, v, totalEnergy(oscillator.m(), oscillator.k(), x, v));
-                });
+    /**
+     * Computes the analytic, Euler and leapfrog trends over {@code n} steps,
+     * scaled to the amplitude and initial energy, and checks both integrators
+     * for reversibility by running them back from their end points.
+     */
+    public OscillatorRun run(HarmonicOscillatorProperties oscillator, double dt, int n) {
+        double a = oscillator.amplitude();
+        double totE = totalEnergy(oscillator);
+        var analytic = Trend.ofLength(n);
+        analytic(oscillator, dt, analytic);
+        scale(analytic, 1.0, a * a / totE);
+        var euler = Trend.ofLength(n);
+        euler(oscillator, dt, euler);
+        scale(euler, 1 / a, 1 / totE);
+        var leapfrog = Trend.ofLength(n);
+        leapfrog(oscillator, dt, leapfrog);
+        scale(leapfrog, 1 / a, 1 / totE);
+
+        var reverseEuler = reverseRun(oscillator, euler, dt, totE, Integrator.euler());
+        var reverseLeapfrog = reverseRun(oscillator, leapfrog, dt, totE, Integrator.positionVerlet());
+        return new OscillatorRun(
+            analytic, euler, leapfrog, reverseEuler, reverseLeapfrog,
+            checkReversibility(euler, reverseEuler), checkReversibility(leapfrog, reverseLeapfrog));
+    }
+
+    /**
+     * Integrates every member of the grid for {@code steps} steps, all members
+     * at once and spread over the available cores, and reports the integrator
+     * error of each member. Each block of members gets its own integrator from
+     * {@code integrators}, e.g. {@code () -> Integrator.named(name)}.
+     */
+    public SweepResult sweep(ParameterGrid grid, Supplier<? extends Integrator> integrators, int steps) {
+        return ParameterSweep.run(grid, integrators, steps);
     }
 
+    /**
+     * Integrates the oscillator with the given integrator, scales the trend to
+     * the amplitude and initial energy, and checks whether running it back from
+     * its end point retraces it.
+     */
+    public boolean checkReversibility(HarmonicOscillatorProperties oscillator, double dt, int n, Integrator integrator) {
+        double a = oscillator.amplitude();
+        double totE = totalEnergy(oscillator);
+        var forward = Trend.ofLength(n);
+        integrate(oscillator, dt, integrator, forward);
+        scale(forward, 1 / a, 1 / totE);
+        return checkReversibility(forward, reverseRun(oscillator, forward, dt, totE, integrator));
+    }
 
-    public Stream<PhaseSpacePoint> leapfrog(
-        HarmonicOscillatorProperties oscillator, double dt
-    ) {
-        return Stream
-            .iterate(
-                new PhaseSpacePoint(oscillator.r0(), oscillator.v0(), totalEnergy(oscillator  )), 
-                p -> {
-                    var xMid = p.x() + p.v() * dt / 2;
-                    var f = -oscillator.k() * xMid - oscillator.bVal() * p.v();
-                    var v = p.v() + f / oscillator.m() * dt;
-                    var x = xMid + v * dt / 2;
-                    return new PhaseSpacePoint(x, v, totalEnergy(oscillator.m(), oscillator.k(), x, v));
-                });
+    private Trend reverseRun(HarmonicOscillatorProperties oscillator, Trend forward, double dt, double totE, Integrator integrator) {
+        int n = forward.length();
+        double a = oscillator.amplitude();
+        var x0reverse = a * forward.x()[n - 1];
+        var v0reverse = -a * forward.v()[n - 1];
+        var propsReverse = new HarmonicOscillatorProperties(oscillator.m(), oscillator.k(), oscillator.b(), x0reverse, v0reverse);
+        var reverse = Trend.ofLength(n);
+        integrate(propsReverse, dt, integrator, reverse);
+        scale(reverse, 1 / propsReverse.amplitude(), 1 / totE);
+        reverse(reverse);
+        LOGGER.debug("a = {}, ar = {}, x0 = {}, v0 = {}", a, propsReverse.amplitude(), x0reverse, v0reverse);
+        return reverse;
     }
 
     public double totalEnergy(HarmonicOscillatorProperties oscillator)
@@ -91,6 +177,49 @@ public class HarmonicOscillatorService {
         return Stream.iterate(0.0, t -> t + dt);
     }
 
+    public void xs(double dt, double[] into) {
+        for (int i = 0; i < into.length; ++i) {
+            into[i] = i * dt;
+        }
+    }
+
+    /**
+     * Multiplies positions and velocities by {@code positionScale} and energies
+     * by {@code energyScale}, in place.
+     */
+    public void scale(Trend trend, double positionScale, double energyScale) {
+        double[] xs = trend.x();
+        double[] vs = trend.v();
+        double[] es = trend.energy();
+        for (int i = 0; i < trend.length(); ++i) {
+            xs[i] *= positionScale;
+            vs[i] *= positionScale;
+            es[i] *= energyScale;
+        }
+    }
+
+    /**
+     * Reverses the trend in time in place, so that a run started from the end
+     * point of another run with inverted velocity can be compared with it.
+     */
+    public void reverse(Trend trend) {
+        double[] xs = trend.x();
+        double[] vs = trend.v();
+        double[] es = trend.energy();
+        int n = trend.length();
+        for (int i = 0, j = n - 1; i <= j; ++i, --j) {
+            var x = xs[i];
+            xs[i] = xs[j];
+            xs[j] = x;
+            var v = vs[i];
+            vs[i] = -vs[j];
+            vs[j] = -v;
+            var e = es[i];
+            es[i] = es[j];
+            es[j] = e;
+        }
+    }
+
     public boolean checkReversibility(Double[][] trend, Double[][] reverseTrend) {
         int length = trend[0].length;
         for (int i = 0; i < length; ++i) {
@@ -105,6 +234,19 @@ public class HarmonicOscillatorService {
         return true;
     }
 
+    public boolean checkReversibility(Trend trend, Trend reverseTrend) {
+        int length = trend.length();
+        for (int i = 0; i < length; ++i) {
+            if (Math.abs(trend.x()[i] - reverseTrend.x()[i]) > SMALL) {
+                return false;
+            }
+            if (Math.abs(trend.v()[i] - reverseTrend.v()[i]) > SMALL) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Double[][] extractTrend(
         Stream<PhaseSpacePoint> stream, long length, UnaryOperator<Double> scaling1, UnaryOperator<Double> scaling2, boolean revert
     ) {
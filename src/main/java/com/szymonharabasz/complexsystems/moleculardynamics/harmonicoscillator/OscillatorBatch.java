@@ -0,0 +1,111 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.RestorableSystem;
+
+/**
+ * Many independent oscillators in structure-of-arrays form, each with its own
+ * parameters and time step. Step fractions passed to {@link #drift(double)} and
+ * {@link #kick(double)} are in units of each member's own time step, so the
+ * batch is integrated with a time step of 1.
+ */
+final class OscillatorBatch implements RestorableSystem {
+
+    final int size;
+    final double[] m;
+    final double[] k;
+    final double[] bVal;
+    final double[] dt;
+    final double[] x;
+    final double[] v;
+    final double[] f;
+    private final double[] savedX;
+    private final double[] savedV;
+    private boolean damped;
+    private boolean forcesCurrent;
+
+    OscillatorBatch(int size) {
+        this.size = size;
+        this.m = new double[size];
+        this.k = new double[size];
+        this.bVal = new double[size];
+        this.dt = new double[size];
+        this.x = new double[size];
+        this.v = new double[size];
+        this.f = new double[size];
+        this.savedX = new double[size];
+        this.savedV = new double[size];
+    }
+
+    void set(int i, HarmonicOscillatorProperties oscillator, double timeStep) {
+        m[i] = oscillator.m();
+        k[i] = oscillator.k();
+        bVal[i] = oscillator.bVal();
+        dt[i] = timeStep;
+        x[i] = oscillator.r0();
+        v[i] = oscillator.v0();
+        damped |= bVal[i] != 0.0;
+        forcesCurrent = false;
+    }
+
+    @Override
+    public void drift(double h) {
+        for (int i = 0; i < size; ++i) {
+            x[i] += h * dt[i] * v[i];
+        }
+        forcesCurrent = false;
+    }
+
+    @Override
+    public void computeForces() {
+        for (int i = 0; i < size; ++i) {
+            f[i] = -k[i] * x[i] - bVal[i] * v[i];
+        }
+        forcesCurrent = true;
+    }
+
+    @Override
+    public void kick(double h) {
+        for (int i = 0; i < size; ++i) {
+            v[i] += h * dt[i] * f[i] / m[i];
+        }
+        forcesCurrent &= !damped;
+    }
+
+    @Override
+    public boolean forcesCurrent() {
+        return forcesCurrent;
+    }
+
+    void reverseVelocities() {
+        for (int i = 0; i < size; ++i) {
+            v[i] = -v[i];
+        }
+        forcesCurrent &= !damped;
+    }
+
+    double energy(int i) {
+        return k[i] * x[i] * x[i] / 2 + m[i] * v[i] * v[i] / 2;
+    }
+
+    @Override
+    public double energy() {
+        double energy = 0.0;
+        for (int i = 0; i < size; ++i) {
+            energy += energy(i);
+        }
+        return energy;
+    }
+
+    @Override
+    public void save() {
+        System.arraycopy(x, 0, savedX, 0, size);
+        System.arraycopy(v, 0, savedV, 0, size);
+    }
+
+    @Override
+    public void restore() {
+        System.arraycopy(savedX, 0, x, 0, size);
+        System.arraycopy(savedV, 0, v, 0, size);
+        forcesCurrent = false;
+    }
+}
@@ -0,0 +1,17 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator;
+
+/**
+ * Everything the oscillator view shows for one parameter set: the analytic,
+ * Euler and leapfrog trends, positions in units of the amplitude and energies
+ * in units of the initial energy, the time-reversed runs and whether each
+ * integrator retraced its trajectory. Runs are shared through
+ * {@link OscillatorRunCache}, so the arrays must not be modified.
+ */
+public record OscillatorRun(
+    Trend analytic, Trend euler, Trend leapfrog, Trend reverseEuler, Trend reverseLeapfrog,
+    boolean eulerReversible, boolean leapfrogReversible
+) {
+    public long sizeInBytes() {
+        return 5L * 3 * Double.BYTES * analytic.length();
+    }
+}
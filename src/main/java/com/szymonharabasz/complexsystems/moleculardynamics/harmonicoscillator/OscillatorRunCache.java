@@ -0,0 +1,100 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Application-wide least-recently-used cache of oscillator runs, keyed by the
+ * oscillator parameters, time step and number of steps. Entries are evicted
+ * once either the number of runs or their total size exceeds its limit. Runs
+ * are computed outside the lock, so concurrent misses on the same key may
+ * compute it twice, but never block other sessions.
+ */
+@ApplicationScoped
+public class OscillatorRunCache {
+
+    public record Key(HarmonicOscillatorProperties oscillator, double dt, int n) { }
+
+    public record Stats(long hits, long misses, long evictions, int size, long bytes) {
+        public double hitRate() {
+            var requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+
+    @Inject
+    HarmonicOscillatorService harmonicOscillatorService;
+
+    @Inject
+    @ConfigProperty(name = "oscillator.cache.max-entries", defaultValue = "256")
+    int maxEntries;
+
+    @Inject
+    @ConfigProperty(name = "oscillator.cache.max-bytes", defaultValue = "67108864")
+    long maxBytes;
+
+    private final Map<Key, OscillatorRun> runs = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    OscillatorRunCache() { }
+
+    /**
+     * A cache outside the container, e.g. for the benchmarks.
+     */
+    public OscillatorRunCache(HarmonicOscillatorService harmonicOscillatorService, int maxEntries, long maxBytes) {
+        this.harmonicOscillatorService = harmonicOscillatorService;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public OscillatorRun get(HarmonicOscillatorProperties oscillator, double dt, int n) {
+        var key = new Key(oscillator, dt, n);
+        synchronized (runs) {
+            var cached = runs.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        var run = harmonicOscillatorService.run(oscillator, dt, n);
+        synchronized (runs) {
+            var previous = runs.put(key, run);
+            bytes += run.sizeInBytes() - (previous == null ? 0 : previous.sizeInBytes());
+            evict();
+        }
+        return run;
+    }
+
+    public Stats stats() {
+        synchronized (runs) {
+            return new Stats(hits.sum(), misses.sum(), evictions.sum(), runs.size(), bytes);
+        }
+    }
+
+    public void clear() {
+        synchronized (runs) {
+            runs.clear();
+            bytes = 0;
+        }
+    }
+
+    private void evict() {
+        Iterator<OscillatorRun> eldest = runs.values().iterator();
+        while ((runs.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            bytes -= eldest.next().sizeInBytes();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator;
+
+/**
+ * Cartesian grid over the oscillator parameters and the time step. Members
+ * are numbered with {@code dt} varying fastest and {@code m} slowest.
+ */
+public record ParameterGrid(double[] m, double[] k, double[] b, double[] r0, double[] v0, double[] dt) {
+
+    public int size() {
+        long size = (long) m.length * k.length * b.length * r0.length * v0.length * dt.length;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid of " + size + " members is too large");
+        }
+        return (int) size;
+    }
+
+    public HarmonicOscillatorProperties oscillator(int member) {
+        int i = member / dt.length;
+        int iv0 = i % v0.length;
+        i /= v0.length;
+        int ir0 = i % r0.length;
+        i /= r0.length;
+        int ib = i % b.length;
+        i /= b.length;
+        int ik = i % k.length;
+        int im = i / k.length;
+        return new HarmonicOscillatorProperties(m[im], k[ik], b[ib], r0[ir0], v0[iv0]);
+    }
+
+    public double dt(int member) {
+        return dt[member % dt.length];
+    }
+
+    /**
+     * {@code count} equally spaced values from {@code from} to {@code to}, both included.
+     */
+    public static double[] linspace(double from, double to, int count) {
+        var values = new double[count];
+        for (int i = 0; i < count; ++i) {
+            values[i] = count == 1 ? from : from + (to - from) * i / (count - 1);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,90 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator;
+
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.Integrator;
+
+/**
+ * Integrates all members of a {@link ParameterGrid} for the same number of
+ * steps and measures their errors against the analytic solution. Members are
+ * processed in blocks of {@link #BLOCK_SIZE} integrated together as one
+ * {@link OscillatorBatch}, with the blocks spread over the common fork-join pool.
+ * Each block steps with its own integrator from the supplier, so that
+ * stateful ones such as {@link Integrator#adaptive} are not shared between
+ * threads.
+ */
+final class ParameterSweep {
+
+    static final int BLOCK_SIZE = 1024;
+
+    private ParameterSweep() { }
+
+    static SweepResult run(ParameterGrid grid, Supplier<? extends Integrator> integrators, int steps) {
+        int size = grid.size();
+        var energyDrift = new double[size];
+        var phaseError = new double[size];
+        var reversibilityError = new double[size];
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * BLOCK_SIZE;
+            int to = Math.min(size, from + BLOCK_SIZE);
+            runBlock(grid, integrators.get(), steps, from, to, energyDrift, phaseError, reversibilityError);
+        });
+        return new SweepResult(grid, steps, energyDrift, phaseError, reversibilityError);
+    }
+
+    private static void runBlock(
+        ParameterGrid grid, Integrator integrator, int steps, int from, int to,
+        double[] energyDrift, double[] phaseError, double[] reversibilityError
+    ) {
+        int size = to - from;
+        var batch = new OscillatorBatch(size);
+        var solutions = new AnalyticSolution[size];
+        var energy0 = new double[size];
+        for (int i = 0; i < size; ++i) {
+            var oscillator = grid.oscillator(from + i);
+            batch.set(i, oscillator, grid.dt(from + i));
+            solutions[i] = new AnalyticSolution(oscillator);
+            energy0[i] = batch.energy(i);
+            energyDrift[from + i] = 0.0;
+        }
+
+        for (int step = 1; step <= steps; ++step) {
+            integrator.step(batch, 1.0);
+            for (int i = 0; i < size; ++i) {
+                var t = step * batch.dt[i];
+                var scale = solutions[i].scale();
+                var x = scale * solutions[i].x(t);
+                var v = scale * solutions[i].v(t);
+                var exact = batch.k[i] * x * x / 2 + batch.m[i] * v * v / 2;
+                var drift = Math.abs(batch.energy(i) - exact) / energy0[i];
+                if (!(drift <= energyDrift[from + i])) {
+                    energyDrift[from + i] = drift;
+                }
+            }
+        }
+
+        for (int i = 0; i < size; ++i) {
+            var t = steps * batch.dt[i];
+            var omega = solutions[i].omega();
+            var b2m = batch.bVal[i] / (2 * batch.m[i]);
+            var exact = Math.atan2(-(solutions[i].v(t) + b2m * solutions[i].x(t)) / omega, solutions[i].x(t));
+            var actual = Math.atan2(-(batch.v[i] + b2m * batch.x[i]) / omega, batch.x[i]);
+            phaseError[from + i] = Math.IEEEremainder(actual - exact, 2 * Math.PI);
+        }
+
+        batch.reverseVelocities();
+        for (int step = 0; step < steps; ++step) {
+            integrator.step(batch, 1.0);
+        }
+        for (int i = 0; i < size; ++i) {
+            var oscillator = grid.oscillator(from + i);
+            var omega0 = Math.sqrt(batch.k[i] / batch.m[i]);
+            var dx = batch.x[i] - oscillator.r0();
+            var dv = (-batch.v[i] - oscillator.v0()) / omega0;
+            var radius = Math.hypot(oscillator.r0(), oscillator.v0() / omega0);
+            reversibilityError[from + i] = Math.hypot(dx, dv) / radius;
+        }
+    }
+}
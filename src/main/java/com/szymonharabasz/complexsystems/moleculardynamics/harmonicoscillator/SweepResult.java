@@ -0,0 +1,15 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator;
+
+/**
+ * Integrator error per member of a parameter sweep, indexed like the members
+ * of the grid. All errors are relative: the energy drift is the largest
+ * deviation from the analytic energy in units of the initial energy, the
+ * phase error the final phase difference to the analytic solution in radians
+ * (NaN unless underdamped), and the reversibility error the phase-space
+ * distance between the initial state and the state after running forward and
+ * back, in units of the initial phase-space radius.
+ */
+public record SweepResult(
+    ParameterGrid grid, int steps, double[] energyDrift, double[] phaseError, double[] reversibilityError
+) {
+}
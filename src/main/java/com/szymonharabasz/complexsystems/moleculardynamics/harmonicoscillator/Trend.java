@@ -0,0 +1,12 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator;
+
+/**
+ * Trajectory of an oscillator as primitive columns of position, velocity
+ * and total energy, one entry per time step.
+ */
+public record Trend(double[] x, double[] v, double[] energy) {
+    public static Trend ofLength(int n) {
+        return new Trend(new double[n], new double[n], new double[n]);
+    }
+    public int length() { return x.length; }
+}
@@ -0,0 +1,140 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.integrators;
+
+/**
+ * Chooses the time step of another integrator from the relative energy error
+ * of each step: a step whose error exceeds the tolerance is undone and
+ * retried with a smaller time step, and the next time step is grown or shrunk
+ * towards the tolerance. Varying the time step gives up the exact symplectic
+ * structure of the wrapped scheme, so energy errors no longer stay bounded
+ * by themselves; the control keeps them at the tolerance instead. The energy
+ * is taken as conserved, so damped systems are stepped at the smallest time
+ * step allowed.
+ * <p>
+ * As an {@link Integrator} it covers each requested time step exactly with
+ * as many controlled substeps as needed, down to {@value #MIN_SUBSTEP} of it,
+ * starting from the substep the previous call ended with. That memory makes
+ * an instance stateful, so each run needs its own, as returned by
+ * {@link Integrator#adaptive(Integrator, double)}. The system must be a
+ * {@link RestorableSystem}.
+ */
+public final class AdaptiveIntegrator implements Integrator {
+
+    /**
+     * Relative energy error per step used by {@link Integrator#named(String)}.
+     */
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+
+    /**
+     * Smallest substep, as a fraction of the time step, when used as an {@link Integrator}.
+     */
+    static final double MIN_SUBSTEP = 1e-3;
+
+    private static final double SAFETY = 0.9;
+    private static final double MAX_GROWTH = 2.0;
+    private static final double MAX_SHRINK = 0.2;
+
+    private final Integrator integrator;
+    private final double tolerance;
+    private final double minDt;
+    private final double maxDt;
+    private double substep = 1.0;
+
+    /**
+     * Outcome of a step: the time step taken, the proposal for the next one,
+     * the relative energy error of the accepted step and the number of
+     * rejected attempts before it.
+     */
+    public record Step(double dt, double nextDt, double energyError, int rejections) {
+    }
+
+    public AdaptiveIntegrator(Integrator integrator, double tolerance, double minDt, double maxDt) {
+        if (!(tolerance > 0) || !(minDt > 0) || maxDt < minDt) {
+            throw new IllegalArgumentException(
+                "Invalid adaptive step control: tolerance " + tolerance + ", dt in [" + minDt + ", " + maxDt + "]");
+        }
+        this.integrator = integrator;
+        this.tolerance = tolerance;
+        this.minDt = minDt;
+        this.maxDt = maxDt;
+    }
+
+    /**
+     * Control with time steps limited only by each call of
+     * {@link #step(SplittingSystem, double)}.
+     */
+    public AdaptiveIntegrator(Integrator integrator, double tolerance) {
+        this(integrator, tolerance, Double.MIN_NORMAL, Double.MAX_VALUE);
+    }
+
+    public Integrator integrator() {
+        return integrator;
+    }
+
+    /**
+     * Advances the system by exactly {@code dt} in controlled substeps.
+     *
+     * @throws IllegalArgumentException if the system cannot be restored
+     */
+    @Override
+    public void step(SplittingSystem system, double dt) {
+        if (!(system instanceof RestorableSystem restorable)) {
+            throw new IllegalArgumentException("Adaptive steps need a restorable system, got " + system.getClass().getName());
+        }
+        var minSubstep = Math.max(minDt, MIN_SUBSTEP * dt);
+        var remaining = dt;
+        while (remaining > 0) {
+            var proposed = Math.max(minSubstep, Math.min(maxDt, substep * dt));
+            var trial = Math.min(remaining, proposed);
+            var taken = step(restorable, trial, Math.min(minSubstep, remaining), remaining);
+            remaining -= taken.dt();
+            // A substep cut short to land on dt says little about the next one
+            if (trial == proposed || taken.dt() < trial) {
+                substep = taken.nextDt() / dt;
+            }
+        }
+    }
+
+    @Override
+    public int order() {
+        return integrator.order();
+    }
+
+    @Override
+    public String name() {
+        return "Adaptive " + integrator.name();
+    }
+
+    /**
+     * Takes one accepted step, starting with a trial time step of {@code dt}.
+     * At the minimum time step, steps are accepted whatever their error.
+     */
+    public Step step(RestorableSystem system, double dt) {
+        return step(system, dt, minDt, maxDt);
+    }
+
+    private Step step(RestorableSystem system, double dt, double minDt, double maxDt) {
+        var energy0 = system.energy();
+        var scale = Math.max(Math.abs(energy0), Double.MIN_NORMAL);
+        dt = clamp(dt, minDt, maxDt);
+        int rejections = 0;
+        system.save();
+        while (true) {
+            integrator.step(system, dt);
+            var error = Math.abs(system.energy() - energy0) / scale;
+            var factor = error == 0.0
+                ? MAX_GROWTH
+                : SAFETY * Math.pow(tolerance / error, 1.0 / (integrator.order() + 1));
+            if (error <= tolerance || dt <= minDt) {
+                var nextDt = clamp(dt * Math.min(MAX_GROWTH, factor), this.minDt, this.maxDt);
+                return new Step(dt, nextDt, error, rejections);
+            }
+            system.restore();
+            dt = clamp(dt * Math.max(MAX_SHRINK, factor), minDt, maxDt);
+            ++rejections;
+        }
+    }
+
+    private static double clamp(double dt, double minDt, double maxDt) {
+        return Math.max(minDt, Math.min(maxDt, dt));
+    }
+}
@@ -0,0 +1,25 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.integrators;
+
+final class ExplicitEuler implements Integrator {
+
+    static final ExplicitEuler INSTANCE = new ExplicitEuler();
+
+    private ExplicitEuler() { }
+
+    @Override
+    public void step(SplittingSystem system, double dt) {
+        system.computeForces();
+        system.drift(dt);
+        system.kick(dt);
+    }
+
+    @Override
+    public int order() {
+        return 1;
+    }
+
+    @Override
+    public String name() {
+        return "Euler";
+    }
+}
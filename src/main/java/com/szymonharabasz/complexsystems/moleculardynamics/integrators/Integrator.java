@@ -0,0 +1,81 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.integrators;
+
+import java.util.Locale;
+
+/**
+ * Advances a {@link SplittingSystem} by one time step.
+ */
+public interface Integrator {
+
+    String ADAPTIVE_PREFIX = "adaptive-";
+
+    void step(SplittingSystem system, double dt);
+
+    /**
+     * Order of the global error in the time step.
+     */
+    int order();
+
+    String name();
+
+    /**
+     * Explicit Euler: forces and drift from the state at the start of the step.
+     * Neither symplectic nor reversible, kept as the reference for how not to do it.
+     */
+    static Integrator euler() {
+        return ExplicitEuler.INSTANCE;
+    }
+
+    /**
+     * Half drift, kick, half drift; the leapfrog the services used so far.
+     */
+    static Integrator positionVerlet() {
+        return SplittingScheme.POSITION_VERLET;
+    }
+
+    /**
+     * Half kick, drift, half kick, reusing the forces of the previous step.
+     */
+    static Integrator velocityVerlet() {
+        return SplittingScheme.VELOCITY_VERLET;
+    }
+
+    /**
+     * Fourth-order Forest-Ruth scheme, Yoshida's triple composition of
+     * position Verlet, with three force evaluations per step.
+     */
+    static Integrator forestRuth() {
+        return SplittingScheme.FOREST_RUTH;
+    }
+
+    /**
+     * The given integrator with its time step split into substeps chosen to
+     * keep the relative energy error of each at {@code tolerance}. A new
+     * instance for every run, see {@link AdaptiveIntegrator}.
+     */
+    static Integrator adaptive(Integrator integrator, double tolerance) {
+        return new AdaptiveIntegrator(integrator, tolerance);
+    }
+
+    /**
+     * Looks an integrator up by a name like {@code velocity-verlet}, ignoring
+     * case; {@code leapfrog} is position Verlet. An {@code adaptive-} prefix,
+     * e.g. {@code adaptive-leapfrog}, wraps the named one in a new
+     * {@link #adaptive(Integrator, double)} with the default tolerance.
+     *
+     * @throws IllegalArgumentException for unknown names
+     */
+    static Integrator named(String name) {
+        var lowerCase = name.toLowerCase(Locale.ROOT);
+        if (lowerCase.startsWith(ADAPTIVE_PREFIX)) {
+            return adaptive(named(lowerCase.substring(ADAPTIVE_PREFIX.length())), AdaptiveIntegrator.DEFAULT_TOLERANCE);
+        }
+        return switch (lowerCase) {
+            case "euler" -> euler();
+            case "leapfrog", "position-verlet" -> positionVerlet();
+            case "velocity-verlet" -> velocityVerlet();
+            case "forest-ruth", "yoshida" -> forestRuth();
+            default -> throw new IllegalArgumentException("Unknown integrator " + name);
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.integrators;
+
+/**
+ * A system that can report its total energy and go back to a saved state,
+ * as needed to reject steps in {@link AdaptiveIntegrator}.
+ */
+public interface RestorableSystem extends SplittingSystem {
+
+    double energy();
+
+    void save();
+
+    void restore();
+}
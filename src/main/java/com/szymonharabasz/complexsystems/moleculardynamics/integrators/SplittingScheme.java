@@ -0,0 +1,55 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.integrators;
+
+/**
+ * Symmetric sequence of drifts and kicks, given as alternating step fractions
+ * starting with a drift. Forces are evaluated before a kick only when stale,
+ * so schemes starting with a kick reuse the forces of the previous step.
+ */
+final class SplittingScheme implements Integrator {
+
+    private static final double THETA = 1.0 / (2.0 - Math.cbrt(2.0));
+
+    static final SplittingScheme POSITION_VERLET = new SplittingScheme("Position Verlet", 2, 0.5, 1.0, 0.5);
+
+    static final SplittingScheme VELOCITY_VERLET = new SplittingScheme("Velocity Verlet", 2, 0.0, 0.5, 1.0, 0.5);
+
+    static final SplittingScheme FOREST_RUTH = new SplittingScheme(
+        "Forest-Ruth", 4,
+        THETA / 2, THETA, (1 - THETA) / 2, 1 - 2 * THETA, (1 - THETA) / 2, THETA, THETA / 2);
+
+    private final String name;
+    private final int order;
+    private final double[] fractions;
+
+    private SplittingScheme(String name, int order, double... fractions) {
+        this.name = name;
+        this.order = order;
+        this.fractions = fractions;
+    }
+
+    @Override
+    public void step(SplittingSystem system, double dt) {
+        for (int i = 0; i < fractions.length; ++i) {
+            if (i % 2 == 0) {
+                if (fractions[i] != 0.0) {
+                    system.drift(fractions[i] * dt);
+                }
+            } else {
+                if (!system.forcesCurrent()) {
+                    system.computeForces();
+                }
+                system.kick(fractions[i] * dt);
+            }
+        }
+    }
+
+    @Override
+    public int order() {
+        return order;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+}
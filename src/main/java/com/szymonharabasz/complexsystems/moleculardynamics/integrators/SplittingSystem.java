@@ -0,0 +1,24 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.integrators;
+
+/**
+ * A system whose equations of motion split into a drift, moving positions
+ * with the current velocities, and a kick, changing velocities by the forces
+ * of the last force evaluation. Step fractions are in units of the time step
+ * passed to the {@link Integrator}, so a system may scale them further, e.g.
+ * by a time step of its own per member.
+ */
+public interface SplittingSystem {
+
+    void drift(double h);
+
+    void kick(double h);
+
+    void computeForces();
+
+    /**
+     * Whether the forces of the last evaluation still belong to the current
+     * state, so that a kick does not need a new evaluation. Drifts, and kicks
+     * of systems with velocity-dependent forces, make them stale.
+     */
+    boolean forcesCurrent();
+}
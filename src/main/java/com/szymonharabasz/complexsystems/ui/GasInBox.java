@@ -1,13 +1,10 @@
 package com.szymonharabasz.complexsystems.ui;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.IntStream;
 
 import com.github.appreciated.apexcharts.config.builder.XAxisBuilder;
 import com.github.appreciated.apexcharts.config.xaxis.XAxisType;
@@ -16,14 +13,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.appreciated.apexcharts.ApexCharts;
-import com.szymonharabasz.complexsystems.common.LabelledData;
+import com.szymonharabasz.complexsystems.common.SimulationMetrics;
+import com.szymonharabasz.complexsystems.common.SimulationRegistry;
 import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxService;
-import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.Particle;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.trajectory.CompactHistory;
 import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.Unit;
+import com.vaadin.flow.component.html.Input;
 import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.radiobutton.RadioButtonGroup;
+import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
 
@@ -37,6 +39,7 @@ public class GasInBox extends VerticalLayout {
     private static final int NSTEPS = 1000;
     private static final int NPARTICLES = 100;
     private static final String TITLE_X = "t * sigma / v0";
+    private static final int TIMELINE_MAX = 1000;
 
     private double sigma = SIGMA0;
     private double epsilon = EPSILON0;
@@ -46,42 +49,79 @@ public class GasInBox extends VerticalLayout {
     private double size = 100 * SIGMA0;
     private List<Double> xs;
     private List<Double> totalEnergy;
-    private Double kineticEnergyInit;
-    private Double potentialEnergyInit;
-    private Double totalEnergyInit;
     
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GasInBox.class);
 
     private transient GasInBoxService gasInBoxService;
 
-    private ApexCharts particleChart;
+    private ParticleCanvas particleCanvas;
     private ApexCharts energyChart;
+    private Span energyChartHolder = new Span();
+    private RadioButtonGroup<GasInBoxFeed.Engine> engineSelector = new RadioButtonGroup<>();
+    private transient GasInBoxFeed.Parameters parameters = parameters(GasInBoxFeed.Engine.LENNARD_JONES);
 
-    private transient List<Particle> currentParticles;
-    
-    private final transient ScheduledExecutorService scheduler =
-    Executors.newScheduledThreadPool(5);
+    private transient SimulationRegistry simulationRegistry;
+    private transient SimulationRegistry.Subscription subscription;
+    private transient SimulationMetrics.Meters meters;
 
     private Span span = new Span();
-
-    public GasInBox(GasInBoxService gasInBoxService) {
+    private Input timeline = new Input();
+    private Span timelineLabel = new Span("Live");
+    private transient CompactHistory history;
+    private boolean replaying;
+
+    public GasInBox(
+        GasInBoxService gasInBoxService, SimulationRegistry simulationRegistry, SimulationMetrics simulationMetrics
+    ) {
         this.gasInBoxService = gasInBoxService;
+        this.simulationRegistry = simulationRegistry;
+        this.meters = simulationMetrics.forSimulation("gasinbox");
 
         add(span);
 
-        currentParticles = this.gasInBoxService.initialize(NPARTICLES, size, 2*v0, sigma);
-        particleChart = new ParticleChart(0, size, 5*sigma).build();
-        particleChart.setSeries(SeriesTools.makeSeries("Particles", currentParticles));
-        add(particleChart);
+        engineSelector.setLabel("Engine");
+        engineSelector.setItems(GasInBoxFeed.Engine.values());
+        engineSelector.setItemLabelGenerator(GasInBoxFeed.Engine::label);
+        engineSelector.setValue(parameters.engine());
+        engineSelector.addValueChangeListener(event -> {
+            if (event.getValue() != null) {
+                switchEngine(event.getValue());
+            }
+        });
+        add(engineSelector);
+
+        particleCanvas = new ParticleCanvas(size, sigma / 2);
+        particleCanvas.setWidth(500f, Unit.PIXELS);
+        particleCanvas.setHeight(500f, Unit.PIXELS);
+        add(particleCanvas);
+
+        timeline.setType("range");
+        timeline.getElement().setAttribute("min", "0");
+        timeline.getElement().setAttribute("max", String.valueOf(TIMELINE_MAX));
+        timeline.setValue(String.valueOf(TIMELINE_MAX));
+        timeline.setValueChangeMode(ValueChangeMode.TIMEOUT);
+        timeline.setWidth(500f, Unit.PIXELS);
+        timeline.addValueChangeListener(event -> scrub(Integer.parseInt(event.getValue())));
+        add(timeline, timelineLabel);
 
         HorizontalLayout plots = new HorizontalLayout();
         plots.setAlignItems(Alignment.STRETCH);
-        energyChart = new LineChart(0, dt * NSTEPS * v0 / sigma, -10, 10, TITLE_X, "E / E0").build();
+        resetEnergyChart();
+        plots.add(energyChartHolder);
+        add(plots);
+    }
+
+    private GasInBoxFeed.Parameters parameters(GasInBoxFeed.Engine engine) {
+        return new GasInBoxFeed.Parameters(engine, NPARTICLES, size, m, epsilon, sigma, v0, dt, NSTEPS);
+    }
+
+    private void resetEnergyChart() {
+        energyChart = new LineChart(0, parameters.frameInterval() * NSTEPS * v0 / sigma, -10, 10, TITLE_X, "E / E0").build();
         energyChart.setHeight(400f,  Unit.PIXELS);
         energyChart.setWidth(400f,  Unit.PIXELS);
-        plots.add(new Span(energyChart));
-        add(plots);
+        energyChartHolder.removeAll();
+        energyChartHolder.add(energyChart);
     }
 
 
@@ -89,54 +129,94 @@ public class GasInBox extends VerticalLayout {
     protected void onAttach(AttachEvent attachEvent) {
         LOGGER.info("Component attached");
         super.onAttach(attachEvent);
-        List<List<Particle>> history = new ArrayList<>(gasInBoxService.leapfrog(currentParticles, size, m, epsilon, sigma, dt).limit(NSTEPS).toList());
-        kineticEnergyInit = this.gasInBoxService.totalKineticEnergy(m, history.get(0));
-        potentialEnergyInit = this.gasInBoxService.totalPotentialEnergy(epsilon, sigma, history.get(0));
-        totalEnergyInit = kineticEnergyInit + potentialEnergyInit;
-
-        var xs = new ArrayList<Double>(IntStream.range(0, NSTEPS).boxed().map(i -> i * dt * v0 / sigma).toList());
-        var kineticEnergy = new ArrayList<Double>(history.stream().map(particles -> gasInBoxService.totalKineticEnergy(m, particles) / kineticEnergyInit).limit(NSTEPS).toList());
-        var potentialEnergy = new ArrayList<Double>(history.stream().map(particles -> gasInBoxService.totalPotentialEnergy(epsilon, sigma, particles) / potentialEnergyInit).limit(NSTEPS).toList());
-        var kineticEnergySeries = SeriesTools.makeSeries(xs.toArray(Double[]::new), new LabelledData("Kinetic energy", kineticEnergy.toArray(Double[]::new)));
-        var potentialEnergySeries = SeriesTools.makeSeries(xs.toArray(Double[]::new), new LabelledData("Potential energy", potentialEnergy.toArray(Double[]::new)));
-
-        energyChart.updateSeries(kineticEnergySeries, potentialEnergySeries);
-
-        scheduler.scheduleAtFixedRate(new Runnable() {
-            private int i = 0;
-            @Override
-            public void run() {
-                if (i < NSTEPS) {
-                    currentParticles = history.get(i);
-                } else {
-                    currentParticles = gasInBoxService.propagate(currentParticles, m, epsilon, sigma, dt, size);
-                }
-                var particleSeries = SeriesTools.makeSeries("Particles", currentParticles);
-
-                var currentKineticEnergy = gasInBoxService.totalKineticEnergy(m, currentParticles) / kineticEnergyInit;
-                var currentPotentialEnergy = gasInBoxService.totalPotentialEnergy(epsilon, sigma, currentParticles) / potentialEnergyInit;
-                var currentTotalEnergy = currentKineticEnergy + currentPotentialEnergy;
-
-                if (i > NSTEPS) {
-                    kineticEnergy.remove(0);
-                    kineticEnergy.add(currentKineticEnergy);
-                    potentialEnergy.remove(0);
-                    potentialEnergy.add(currentPotentialEnergy);
-                }
-                var newKineticEnergySeries = SeriesTools.makeSeries(xs.toArray(Double[]::new), new LabelledData("Kinetic energy", kineticEnergy.toArray(Double[]::new)));
-                var newPpotentialEnergySeries = SeriesTools.makeSeries(xs.toArray(Double[]::new), new LabelledData("Potential energy", potentialEnergy.toArray(Double[]::new)));
-
-                if (i % 10 == 0) {
-                    getUI().ifPresent(ui -> ui.access(() -> {
-                        span.setText("i: " + i + ", potential energy: " + currentPotentialEnergy + ", initial" + potentialEnergyInit + ", kinetic; " + currentKineticEnergy);
-                        particleChart.updateSeries(particleSeries);
-                        energyChart.updateSeries(newKineticEnergySeries, newPpotentialEnergySeries);
-                        ui.push();
-                    }));
-                }
-                ++i;
+        subscribe();
+    }
+
+    private void subscribe() {
+        var subscribed = parameters;
+        try {
+            subscription = simulationRegistry.subscribe(
+                "gasinbox", subscribed, 10, TimeUnit.MILLISECONDS,
+                () -> new GasInBoxFeed(gasInBoxService, meters, subscribed),
+                (snapshot, acknowledge) -> show(subscribed, snapshot, acknowledge));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn(e.getMessage());
+            span.setText("The server is running too many simulations, please try again later.");
+        }
+    }
+
+    /**
+     * Leaves the shared simulation of the current engine and joins, or
+     * starts, the one of the other, back at the live end of the timeline.
+     */
+    private void switchEngine(GasInBoxFeed.Engine engine) {
+        if (engine == parameters.engine()) {
+            return;
+        }
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+        parameters = parameters(engine);
+        history = null;
+        replaying = false;
+        timeline.setValue(String.valueOf(TIMELINE_MAX));
+        timelineLabel.setText("Live");
+        resetEnergyChart();
+        subscribe();
+    }
+
+    private void show(GasInBoxFeed.Parameters subscribed, GasInBoxFeed.Snapshot snapshot, Runnable acknowledge) {
+        var requested = System.nanoTime();
+        getUI().ifPresentOrElse(ui -> ui.access(() -> {
+            var current = subscription;
+            if (current == null || !subscribed.equals(parameters)) {
+                acknowledge.run();
+                return;
+            }
+            span.setText("step: " + snapshot.step() + ", potential energy: " + snapshot.potentialEnergy() + ", initial" + snapshot.potentialEnergyInit()
+                + ", kinetic; " + snapshot.kineticEnergy() + ", viewers: " + current.viewers()
+                + ", round trip: " + Math.round(current.roundTripMillis()) + " ms");
+            history = snapshot.history();
+            int particlePayloadBytes = 0;
+            if (replaying) {
+                acknowledge.run();
+            } else {
+                particlePayloadBytes = particleCanvas.draw(snapshot.particles(), acknowledge);
             }
-        }, 200, 10, TimeUnit.MILLISECONDS);
+            energyChart.updateSeries(snapshot.kineticEnergySeries(), snapshot.potentialEnergySeries());
+            ui.push();
+            meters.recordPush(System.nanoTime() - requested, particlePayloadBytes + snapshot.energyPayloadBytes());
+        }), acknowledge);
+    }
+
+    /**
+     * Shows the kept frame at the given position of the timeline, or live
+     * frames again at its end.
+     */
+    private void scrub(int position) {
+        var current = history;
+        replaying = position < TIMELINE_MAX && current != null && current.size() > 0;
+        if (!replaying) {
+            timelineLabel.setText("Live");
+            return;
+        }
+        synchronized (current) {
+            int frame = (int) ((long) position * (current.size() - 1) / TIMELINE_MAX);
+            particleCanvas.draw(current.particles(frame));
+            timelineLabel.setText(String.format("Replaying t = %.2f, %d frames kept",
+                current.step(frame) * parameters.frameInterval() * v0 / sigma, current.size()));
+        }
+    }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        LOGGER.info("Component detached");
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+        super.onDetach(detachEvent);
     }
 
 }
@@ -0,0 +1,168 @@
+package com.szymonharabasz.complexsystems.ui;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.github.appreciated.apexcharts.helper.Series;
+import com.szymonharabasz.complexsystems.common.DoubleRingBuffer;
+import com.szymonharabasz.complexsystems.common.FrameSource;
+import com.szymonharabasz.complexsystems.common.SimulationHandle;
+import com.szymonharabasz.complexsystems.common.SimulationMetrics;
+import com.szymonharabasz.complexsystems.common.SimulationScheduler;
+import com.szymonharabasz.complexsystems.common.WarmUpBuffer;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxFrame;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.GasInBoxService;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.LennardJones;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.Particle;
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.trajectory.CompactHistory;
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.Integrator;
+
+/**
+ * The gas simulation behind the {@link GasInBox} views. It steps the gas
+ * once per tick, keeps the energy history, and publishes a {@link Snapshot}
+ * that all views with the same {@link Parameters} share, chart series
+ * included, when a view is ready for one and at least
+ * {@value #MIN_STEPS_PER_FRAME} steps after the previous one. The steps per
+ * frame thus grow when all viewers are slow. Every
+ * {@value #HISTORY_STRIDE}th step is also kept in a {@link CompactHistory}
+ * that the views can scrub through.
+ * <p>
+ * The gas is either Lennard-Jones particles stepped by the leapfrog or hard
+ * disks of diameter σ run event by event and sampled every
+ * {@value #HARD_DISK_STEPS_PER_SAMPLE} time steps, which covers the same
+ * simulated time with far less work while the gas is dilute.
+ */
+final class GasInBoxFeed implements FrameSource<GasInBoxFeed.Snapshot> {
+
+    static final int MIN_STEPS_PER_FRAME = 10;
+    static final int HISTORY_STRIDE = 10;
+    static final int HARD_DISK_STEPS_PER_SAMPLE = 20;
+    private static final int MAX_CHART_POINTS = 200;
+    private static final double HISTORY_MAX_ERROR = 1e-3;
+    private static final long HISTORY_MAX_BYTES = 16L * 1024 * 1024;
+
+    enum Engine {
+        LENNARD_JONES("Lennard-Jones", 1),
+        HARD_DISKS("Hard disks", HARD_DISK_STEPS_PER_SAMPLE);
+
+        private final String label;
+        private final int stepsPerSample;
+
+        Engine(String label, int stepsPerSample) {
+            this.label = label;
+            this.stepsPerSample = stepsPerSample;
+        }
+
+        String label() {
+            return label;
+        }
+    }
+
+    /**
+     * The key under which views share a simulation.
+     */
+    record Parameters(
+        Engine engine, int n, double size, double m, double epsilon, double sigma, double v0, double dt, int historySteps
+    ) {
+
+        /**
+         * Simulated time between two frames of the feed.
+         */
+        double frameInterval() {
+            return engine.stepsPerSample * dt;
+        }
+    }
+
+    record Snapshot(
+        long step, List<Particle> particles,
+        double kineticEnergy, double potentialEnergy, double potentialEnergyInit,
+        Series<Object[]> kineticEnergySeries, Series<Object[]> potentialEnergySeries, long energyPayloadBytes,
+        CompactHistory history
+    ) { }
+
+    private final SimulationMetrics.Meters meters;
+    private final WarmUpBuffer<GasInBoxFrame> warmUp;
+    private final double[] xs;
+    private final DoubleRingBuffer kineticEnergy;
+    private final DoubleRingBuffer potentialEnergy;
+    private final CompactHistory history;
+    private double potentialEnergyInit = Double.NaN;
+    private double totalEnergyInit = Double.NaN;
+    private SimulationHandle warmUpTask;
+    private long step;
+    private long publishedStep = -MIN_STEPS_PER_FRAME;
+
+    GasInBoxFeed(GasInBoxService gasInBoxService, SimulationMetrics.Meters meters, Parameters parameters) {
+        this.meters = meters;
+        var initial = gasInBoxService.initialize(parameters.n(), parameters.size(), 2 * parameters.v0(), parameters.sigma());
+        var frames = switch (parameters.engine()) {
+            case LENNARD_JONES -> gasInBoxService.evolveWithObservables(
+                initial, parameters.size(), parameters.m(), LennardJones.of(parameters.epsilon(), parameters.sigma()),
+                Integrator.positionVerlet(), parameters.dt(),
+                (stepNumber, system) -> meters.countPairs(system.neighbours().pairCount())).iterator();
+            case HARD_DISKS -> gasInBoxService.hardDisks(
+                initial, parameters.size(), parameters.m(), parameters.sigma(), parameters.frameInterval()).iterator();
+        };
+        this.warmUp = new WarmUpBuffer<>(() -> nextFrame(frames), parameters.historySteps());
+        var timeUnit = parameters.frameInterval() * parameters.v0() / parameters.sigma();
+        this.xs = IntStream.range(0, parameters.historySteps()).mapToDouble(i -> i * timeUnit).toArray();
+        this.kineticEnergy = new DoubleRingBuffer(parameters.historySteps());
+        this.potentialEnergy = new DoubleRingBuffer(parameters.historySteps());
+        this.history = new CompactHistory(parameters.n(), HISTORY_MAX_ERROR * parameters.sigma(), HISTORY_MAX_BYTES);
+    }
+
+    @Override
+    public void start(SimulationScheduler scheduler) {
+        warmUpTask = warmUp.start(scheduler, "gasinbox-warmup");
+    }
+
+    @Override
+    public Snapshot next(boolean frameWanted) {
+        var frame = warmUp.next(this::plotEnergies);
+        if (frame == null) {
+            return null;
+        }
+        var frameStep = step++;
+        if (frameStep % HISTORY_STRIDE == 0) {
+            history.append(frameStep, frame.particles());
+        }
+        if (!frameWanted || frameStep - publishedStep < MIN_STEPS_PER_FRAME) {
+            return null;
+        }
+        publishedStep = frameStep;
+        var kineticEnergySeries = SeriesTools.makeSeries("Kinetic energy", xs, kineticEnergy, MAX_CHART_POINTS);
+        var potentialEnergySeries = SeriesTools.makeSeries("Potential energy", xs, potentialEnergy, MAX_CHART_POINTS);
+        return new Snapshot(
+            frameStep, frame.particles(),
+            frame.observables().kineticEnergy() / totalEnergyInit,
+            frame.observables().potentialEnergy() / totalEnergyInit,
+            potentialEnergyInit,
+            kineticEnergySeries, potentialEnergySeries,
+            SeriesTools.estimatedPayloadBytes(kineticEnergySeries, potentialEnergySeries),
+            history);
+    }
+
+    @Override
+    public void stop() {
+        if (warmUpTask != null) {
+            warmUpTask.cancel();
+        }
+    }
+
+    private void plotEnergies(GasInBoxFrame frame) {
+        if (Double.isNaN(totalEnergyInit)) {
+            potentialEnergyInit = frame.observables().potentialEnergy();
+            totalEnergyInit = frame.observables().kineticEnergy() + potentialEnergyInit;
+        }
+        kineticEnergy.add(frame.observables().kineticEnergy() / totalEnergyInit);
+        potentialEnergy.add(frame.observables().potentialEnergy() / totalEnergyInit);
+    }
+
+    private GasInBoxFrame nextFrame(Iterator<GasInBoxFrame> frames) {
+        var start = System.nanoTime();
+        var frame = frames.next();
+        meters.recordStep(System.nanoTime() - start);
+        return frame;
+    }
+}
@@ -7,8 +7,10 @@ import org.slf4j.LoggerFactory;
 
 import com.github.appreciated.apexcharts.ApexCharts;
 import com.szymonharabasz.complexsystems.common.LabelledData;
+import com.szymonharabasz.complexsystems.common.SimulationMetrics;
 import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.HarmonicOscillatorProperties;
 import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.HarmonicOscillatorService;
+import com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator.OscillatorRunCache;
 import com.vaadin.flow.component.Key;
 import com.vaadin.flow.component.Unit;
 import com.vaadin.flow.component.button.Button;
@@ -30,6 +32,8 @@ import com.vaadin.flow.router.Route;
 public class HarmonicOscillator extends VerticalLayout {
 
     transient HarmonicOscillatorService harmonicOscillatorService;
+    transient OscillatorRunCache oscillatorRunCache;
+    transient SimulationMetrics.Meters meters;
 
     private double dtMilis = 15.0;
     private double m = 0.1;
@@ -44,8 +48,13 @@ public class HarmonicOscillator extends VerticalLayout {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HarmonicOscillator.class);
 
-    public HarmonicOscillator(HarmonicOscillatorService harmonicOscillatorService) {
+    public HarmonicOscillator(
+        HarmonicOscillatorService harmonicOscillatorService, OscillatorRunCache oscillatorRunCache,
+        SimulationMetrics simulationMetrics
+    ) {
         this.harmonicOscillatorService = harmonicOscillatorService;
+        this.oscillatorRunCache = oscillatorRunCache;
+        this.meters = simulationMetrics.forSimulation("oscillator");
 
         // Use TextField for standard text input
         TextField textField = new TextField("Your name");
@@ -108,73 +117,49 @@ public class HarmonicOscillator extends VerticalLayout {
     }
 
     private void updateChartData() {
-
+        var start = System.nanoTime();
         var props = new HarmonicOscillatorProperties(m, k, b, x0, v0);
-        double a = props.amplitude();
         double period = props.period();
         double tMax = 4 * period;
         double dt = dtMilis / 1000;
-        var n = Math.round(tMax / dt);
-        var analyticStream = harmonicOscillatorService.analytic(props, dt);
-        var eulerStream = harmonicOscillatorService.euler(props, dt);
-        var leapfrogStream = harmonicOscillatorService.leapfrog(props, dt);
-
-        Double totE = harmonicOscillatorService.totalEnergy(props);
-        Double[][] analytic = harmonicOscillatorService.extractTrend(analyticStream, n, x -> x, e -> e / (totE / (a*a)), false);
-        Double[][] euler = harmonicOscillatorService.extractTrend(eulerStream, n, x -> x / a, e -> e / totE, false);
-        Double[][] leapfrog = harmonicOscillatorService.extractTrend(leapfrogStream, n, x -> x / a, e -> e / totE, false);
-
-        var x0reverseEuler = a * euler[0][euler[0].length - 1];
-        var v0reverseEuler = -a * euler[1][euler[1].length - 1];
-        var propsReverseEuler = new HarmonicOscillatorProperties(m, k, b, x0reverseEuler, v0reverseEuler);
-        var reverseEulerStream = harmonicOscillatorService.euler(propsReverseEuler, dt);
-        Double[][] reverseEuler = harmonicOscillatorService.extractTrend(reverseEulerStream, n, x -> x / propsReverseEuler.amplitude(), e -> e / totE, true);
-        boolean isEulerReversible = harmonicOscillatorService.checkReversibility(euler, reverseEuler);
-
-        var x0reverseLeapfrog = a * leapfrog[0][leapfrog[0].length - 1];
-        var v0reverseLeapfrog = -a * leapfrog[1][leapfrog[1].length - 1];
-        var propsReverseLeapfrog = new HarmonicOscillatorProperties(m, k, b, x0reverseLeapfrog, v0reverseLeapfrog);
-        var reverseLeapfrogStream = harmonicOscillatorService.leapfrog(propsReverseLeapfrog, dt);
-        Double[][] reverseLeapfrog = harmonicOscillatorService.extractTrend(reverseLeapfrogStream, n, x -> x / propsReverseLeapfrog.amplitude(), e -> e / totE, true);
-        boolean isLeapfrogReversible = harmonicOscillatorService.checkReversibility(leapfrog, reverseLeapfrog);
+        var n = (int) Math.round(tMax / dt);
+
+        var run = oscillatorRunCache.get(props, dt, n);
+        var analytic = run.analytic();
+        var euler = run.euler();
+        var leapfrog = run.leapfrog();
+        var reverseLeapfrog = run.reverseLeapfrog();
 
         if (eulerReversabilityResult != null) {
-            eulerReversabilityResult.setText("Euler method is reversible: " + isEulerReversible);
+            eulerReversabilityResult.setText("Euler method is reversible: " + run.eulerReversible());
         }
         if (leapfrogReversabilityResult != null) {
-            leapfrogReversabilityResult.setText("Leapfrog method is reversible: " + isLeapfrogReversible);
+            leapfrogReversabilityResult.setText("Leapfrog method is reversible: " + run.leapfrogReversible());
         }
 
-        LOGGER.debug("***");
-        for (var i = 0; i < euler[0].length; ++i) {
-            var l = reverseEuler[0].length;
-            LOGGER.debug("{} {} {}", euler[0][i], euler[1][i], reverseEuler[0][l - i - 1]);
+        var xs = new double[n];
+        harmonicOscillatorService.xs(dt, xs);
+        for (int i = 0; i < n; ++i) {
+            xs[i] /= period;
         }
 
-        LOGGER.debug("a = {}, ar = {}, x0 = {}, v0 = {}", a, propsReverseLeapfrog.amplitude(), x0reverseLeapfrog, v0reverseLeapfrog);
-
-        Double[] xs = harmonicOscillatorService.xs(dt)
-            .limit(n)
-            .map(t -> t / period)
-            .toArray(Double[]::new);
-
         if (trajectoryChart != null) {
             trajectoryChart.updateSeries(
-                SeriesTools.makeSeries(xs, new LabelledData("Analytic", analytic[0])),
-                SeriesTools.makeSeries(xs, new LabelledData("Euler", euler[0])),
-                SeriesTools.makeSeries(xs, new LabelledData("Leap Frog", leapfrog[0])),
-                SeriesTools.makeSeries(xs, new LabelledData("Leap Frog reverse", reverseLeapfrog[0]))
+                SeriesTools.makeSeries(xs, new LabelledData("Analytic", analytic.x())),
+                SeriesTools.makeSeries(xs, new LabelledData("Euler", euler.x())),
+                SeriesTools.makeSeries(xs, new LabelledData("Leap Frog", leapfrog.x())),
+                SeriesTools.makeSeries(xs, new LabelledData("Leap Frog reverse", reverseLeapfrog.x()))
             );
         }
 
         if (totalEnergyChart != null) {
             totalEnergyChart.updateSeries(
-                SeriesTools.makeSeries(xs, new LabelledData("Analytic", analytic[2])),
-                SeriesTools.makeSeries(xs, new LabelledData("Euler", euler[2])),
-                SeriesTools.makeSeries(xs, new LabelledData("Leap Frog", leapfrog[2]))
+                SeriesTools.makeSeries(xs, new LabelledData("Analytic", analytic.energy())),
+                SeriesTools.makeSeries(xs, new LabelledData("Euler", euler.energy())),
+                SeriesTools.makeSeries(xs, new LabelledData("Leap Frog", leapfrog.energy()))
             );
         }
-
+        meters.recordRecompute(System.nanoTime() - start);
     }
 
     private NumberField makeNumberField(
@@ -0,0 +1,97 @@
+package com.szymonharabasz.complexsystems.ui;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.Particle;
+import com.vaadin.flow.component.ClientCallable;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.HasSize;
+import com.vaadin.flow.component.Tag;
+import com.vaadin.flow.component.dependency.JsModule;
+
+/**
+ * Draws the particles of a square box on a canvas in the browser. Each frame
+ * is sent as one compact binary buffer, see {@link ParticleFrameEncoder},
+ * and the browser draws only the latest one on its next animation frame, so
+ * it does not lay out a chart for every particle. The browser acknowledges
+ * the frames it has drawn by echoing the sequence number of the latest one,
+ * which lets the sender pace itself.
+ */
+@Tag("particle-canvas")
+@JsModule("./particle-canvas.js")
+public class ParticleCanvas extends Component implements HasSize {
+
+    /**
+     * How positions are sent: as 32-bit floats, as 16-bit fractions of the
+     * box size, or as 8-bit differences between 16-bit frames when the
+     * particles moved little since the previous one.
+     */
+    public enum Encoding { FLOAT32, QUANTISED, DELTA }
+
+    private static final int MAX_UNACKNOWLEDGED = 16;
+
+    private final transient ParticleFrameEncoder encoder;
+    private record Drawing(int sequence, Runnable drawn) { }
+
+    private final transient ArrayDeque<Drawing> onDrawn = new ArrayDeque<>();
+    private int nextSequence;
+
+    /**
+     * @param size side of the box, in the units of the positions
+     * @param radius radius of the drawn particles, in the same units
+     */
+    public ParticleCanvas(double size, double radius, Encoding encoding) {
+        this.encoder = new ParticleFrameEncoder(size, encoding);
+        getElement().setProperty("size", size);
+        getElement().setProperty("radius", radius);
+        addAttachListener(event -> encoder.reset());
+        addDetachListener(event -> {
+            while (!onDrawn.isEmpty()) {
+                onDrawn.poll().drawn().run();
+            }
+        });
+    }
+
+    public ParticleCanvas(double size, double radius) {
+        this(size, radius, Encoding.DELTA);
+    }
+
+    /**
+     * Sends the positions to the browser.
+     *
+     * @return the length of the encoded frame, in characters
+     */
+    public int draw(List<Particle> particles) {
+        return draw(particles, () -> { });
+    }
+
+    /**
+     * Sends the positions to the browser and runs {@code drawn} once the
+     * browser has drawn them, or once the canvas is detached.
+     *
+     * @return the length of the encoded frame, in characters
+     */
+    public int draw(List<Particle> particles, Runnable drawn) {
+        var frame = encoder.encode(particles);
+        var sequence = nextSequence++;
+        onDrawn.add(new Drawing(sequence, drawn));
+        if (onDrawn.size() > MAX_UNACKNOWLEDGED) {
+            onDrawn.poll().drawn().run();
+        }
+        getElement().executeJs("this.draw($0, $1)", frame, sequence);
+        return frame.length();
+    }
+
+    /**
+     * The browser has drawn the frame with the given sequence number, and so
+     * is done with all frames before it; acknowledgements of frames already
+     * acknowledged are ignored.
+     */
+    @ClientCallable
+    private void acknowledge(int sequence) {
+        while (!onDrawn.isEmpty() && onDrawn.peek().sequence() - sequence <= 0) {
+            onDrawn.poll().drawn().run();
+        }
+    }
+}
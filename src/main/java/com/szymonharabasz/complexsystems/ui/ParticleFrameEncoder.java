@@ -0,0 +1,112 @@
+package com.szymonharabasz.complexsystems.ui;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.List;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.Particle;
+
+/**
+ * Packs particle positions into the binary frames drawn by
+ * {@code particle-canvas.js}, base64 encoded so that they can be passed as a
+ * string argument of a JavaScript call.
+ * <p>
+ * A frame starts with an 8-byte little-endian header, the kind of frame in
+ * the first byte and the number of particles in the last four, followed by
+ * the x, y pairs of all particles: as 32-bit floats, as 16-bit fixed-point
+ * fractions of the box size, or as 8-bit differences from the previous
+ * fixed-point frame. Differences are sent only while every particle moved
+ * less than 127 steps of the grid, and a full fixed-point frame is sent at
+ * least every {@value #KEYFRAME_INTERVAL} frames.
+ */
+final class ParticleFrameEncoder {
+
+    static final int HEADER_BYTES = 8;
+    static final int KEYFRAME_INTERVAL = 50;
+
+    private static final byte FLOAT32_FRAME = 0;
+    private static final byte QUANTISED_FRAME = 1;
+    private static final byte DELTA_FRAME = 2;
+    private static final int LEVELS = 0xFFFF;
+
+    private final double size;
+    private final ParticleCanvas.Encoding encoding;
+    private int[] previous = new int[0];
+    private int[] current = new int[0];
+    private int sinceKeyframe = -1;
+
+    ParticleFrameEncoder(double size, ParticleCanvas.Encoding encoding) {
+        this.size = size;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Makes the next frame a full one, e.g. when the browser lost its state.
+     */
+    void reset() {
+        sinceKeyframe = -1;
+    }
+
+    String encode(List<Particle> particles) {
+        return Base64.getEncoder().encodeToString(encodeBytes(particles));
+    }
+
+    byte[] encodeBytes(List<Particle> particles) {
+        int n = particles.size();
+        if (encoding == ParticleCanvas.Encoding.FLOAT32) {
+            var buffer = header(FLOAT32_FRAME, n, 8 * n);
+            for (var particle : particles) {
+                buffer.putFloat((float) particle.x());
+                buffer.putFloat((float) particle.y());
+            }
+            return buffer.array();
+        }
+
+        if (current.length != 2 * n) {
+            current = new int[2 * n];
+            previous = new int[2 * n];
+            sinceKeyframe = -1;
+        }
+        int maxDelta = 0;
+        for (int i = 0; i < n; ++i) {
+            var particle = particles.get(i);
+            current[2 * i] = quantise(particle.x());
+            current[2 * i + 1] = quantise(particle.y());
+            maxDelta = Math.max(maxDelta, Math.abs(current[2 * i] - previous[2 * i]));
+            maxDelta = Math.max(maxDelta, Math.abs(current[2 * i + 1] - previous[2 * i + 1]));
+        }
+
+        ByteBuffer buffer;
+        if (encoding == ParticleCanvas.Encoding.DELTA && sinceKeyframe >= 0 && sinceKeyframe < KEYFRAME_INTERVAL
+            && maxDelta <= Byte.MAX_VALUE) {
+            buffer = header(DELTA_FRAME, n, 2 * n);
+            for (int i = 0; i < 2 * n; ++i) {
+                buffer.put((byte) (current[i] - previous[i]));
+            }
+            ++sinceKeyframe;
+        } else {
+            buffer = header(QUANTISED_FRAME, n, 4 * n);
+            for (int i = 0; i < 2 * n; ++i) {
+                buffer.putShort((short) current[i]);
+            }
+            sinceKeyframe = 1;
+        }
+        var swap = previous;
+        previous = current;
+        current = swap;
+        return buffer.array();
+    }
+
+    private int quantise(double coordinate) {
+        return (int) Math.max(0, Math.min(LEVELS, Math.round(coordinate / size * LEVELS)));
+    }
+
+    private static ByteBuffer header(byte kind, int n, int payloadBytes) {
+        var buffer = ByteBuffer.allocate(HEADER_BYTES + payloadBytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(kind);
+        buffer.position(4);
+        buffer.putInt(n);
+        return buffer;
+    }
+}
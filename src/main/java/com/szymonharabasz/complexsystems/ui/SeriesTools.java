@@ -1,15 +1,33 @@
 package com.szymonharabasz.complexsystems.ui;
 
 import java.util.ArrayList;
-import java.util.List;
 
 import com.github.appreciated.apexcharts.helper.Series;
+import com.szymonharabasz.complexsystems.common.DoubleRingBuffer;
+import com.szymonharabasz.complexsystems.common.Downsampler;
 import com.szymonharabasz.complexsystems.common.LabelledData;
-import com.szymonharabasz.complexsystems.moleculardynamics.gasinbox.Particle;
 
 public class SeriesTools {
+
+    /**
+     * Rough size of one [x, y] point of doubles in the JSON sent to the chart.
+     */
+    private static final int BYTES_PER_POINT = 40;
+
     private SeriesTools() { }
 
+    /**
+     * Estimated size of the series data sent to the browser, for metrics.
+     */
+    @SafeVarargs
+    public static long estimatedPayloadBytes(Series<Object[]>... series) {
+        long points = 0;
+        for (var s : series) {
+            points += s.getData().length;
+        }
+        return points * BYTES_PER_POINT;
+    }
+
     public static Series<Object[]> makeSeries(Double[] xs, LabelledData labelledData) {
         var data = new ArrayList<Double[]>();
         for (int i = 0; i < Math.min(xs.length, labelledData.data().length); ++i) {
@@ -20,13 +38,29 @@ public class SeriesTools {
         return new Series<>(labelledData.label(), arr);
     }
 
-    public static Series<Object[]> makeSeries(String label, List<Particle> particles) {
-        var data = new ArrayList<Double[]>();
-        for (var particle : particles) {
-                data.add(new Double[] {particle.x(), particle.y()});
+    public static Series<Object[]> makeSeries(double[] xs, LabelledData labelledData) {
+        return makeSeries(labelledData.label(), xs, labelledData.data(), Math.min(xs.length, labelledData.data().length));
+    }
+
+    public static Series<Object[]> makeSeries(String label, double[] xs, double[] ys, int length) {
+        Object[][] arr = new Object[length][];
+        for (int i = 0; i < length; ++i) {
+                arr[i] = new Double[] {xs[i], ys[i]};
         }
-        Object[][] arr = data.toArray(Object[][]::new);
 
         return new Series<>(label, arr);
     }
+
+    /**
+     * Series of the values in the ring buffer, oldest first, against {@code xs},
+     * downsampled to at most {@code maxPoints} points.
+     */
+    public static Series<Object[]> makeSeries(String label, double[] xs, DoubleRingBuffer values, int maxPoints) {
+        var ys = new double[values.size()];
+        int length = Math.min(xs.length, values.copyTo(ys));
+        var outXs = new double[Math.min(length, maxPoints)];
+        var outYs = new double[outXs.length];
+        int count = Downsampler.lttb(xs, ys, length, maxPoints, outXs, outYs);
+        return makeSeries(label, outXs, outYs, count);
+    }
 }
@@ -0,0 +1,34 @@
+package com.szymonharabasz.complexsystems.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class FramePacerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void lateAcknowledgementOfExpiredFrameIsIgnored() {
+        var pacer = new FramePacer();
+        var expired = pacer.sent(0);
+        var now = FramePacer.ACK_TIMEOUT_NANOS + 100 * MILLIS;
+        assertTrue(pacer.ready(now));
+        var next = pacer.sent(now);
+        assertEquals(-1, pacer.acknowledged(expired, now + 10 * MILLIS));
+        assertEquals(300 * MILLIS, pacer.acknowledged(next, now + 300 * MILLIS));
+        assertEquals(-1, pacer.acknowledged(next, now + 301 * MILLIS));
+    }
+
+    @Test
+    void acknowledgementsOutOfOrderPairWithTheirFrames() {
+        var pacer = new FramePacer();
+        var first = pacer.sent(0);
+        var second = pacer.sent(30 * MILLIS);
+        assertEquals(20 * MILLIS, pacer.acknowledged(second, 50 * MILLIS));
+        assertEquals(60 * MILLIS, pacer.acknowledged(first, 60 * MILLIS));
+    }
+}
@@ -0,0 +1,29 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.Integrator;
+
+/**
+ * Ensembles whose replicas run in parallel with an integrator that keeps
+ * state between steps.
+ */
+class EnsembleTest {
+
+    private static final EnsembleSpec SPEC = new EnsembleSpec(8, 42, 40, 20.0, 1.0, 1.0, 1.0, 1.0, 0.01, 50, 200, 10);
+
+    @Test
+    void adaptiveEnsembleIsReproducible() {
+        var first = Ensemble.run(SPEC, () -> Integrator.named("adaptive-leapfrog"));
+        var second = Ensemble.run(SPEC, () -> Integrator.named("adaptive-leapfrog"));
+        assertEquals(first.kineticEnergy().mean(), second.kineticEnergy().mean());
+        assertEquals(first.potentialEnergy().mean(), second.potentialEnergy().mean());
+        assertEquals(first.totalEnergy().mean(), second.totalEnergy().mean());
+        assertEquals(first.pressure().mean(), second.pressure().mean());
+        for (int bin = 0; bin < first.speeds().bins(); ++bin) {
+            assertEquals(first.speeds().count(bin), second.speeds().count(bin), "speeds in bin " + bin);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.harmonicoscillator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.szymonharabasz.complexsystems.moleculardynamics.integrators.Integrator;
+
+/**
+ * Sweeps over several blocks, run in parallel, with an integrator that keeps
+ * state between steps.
+ */
+class ParameterSweepTest {
+
+    private static final ParameterGrid GRID = new ParameterGrid(
+        ParameterGrid.linspace(0.05, 0.2, 4), ParameterGrid.linspace(2.5, 10.0, 8),
+        new double[] {0.0}, new double[] {0.0}, new double[] {-10.0}, ParameterGrid.linspace(0.001, 0.3, 128));
+
+    @Test
+    void adaptiveSweepIsReproducible() {
+        var first = ParameterSweep.run(GRID, () -> Integrator.named("adaptive-leapfrog"), 200);
+        var second = ParameterSweep.run(GRID, () -> Integrator.named("adaptive-leapfrog"), 200);
+        assertArrayEquals(first.energyDrift(), second.energyDrift());
+        assertArrayEquals(first.phaseError(), second.phaseError());
+        assertArrayEquals(first.reversibilityError(), second.reversibilityError());
+    }
+}
@@ -0,0 +1,101 @@
+package com.szymonharabasz.complexsystems.moleculardynamics.gasinbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import jdk.incubator.vector.DoubleVector;
+
+/**
+ * The Vector API kernel against the scalar one on the same store and
+ * neighbour list, for all truncations and for particle counts whose partner
+ * counts are mostly not multiples of the lane width, so that the scalar
+ * tail runs next to the vector loop.
+ */
+class VectorForceEngineTest {
+
+    private static final double TOLERANCE = 1e-12;
+    private static final int LANES = DoubleVector.SPECIES_PREFERRED.length();
+
+    @ParameterizedTest
+    @ValueSource(longs = { 1, 2, 3, 4, 5, 6, 7, 8 })
+    void agreesWithScalarKernelForRandomGases(long seed) {
+        var random = new SplittableRandom(seed);
+        int n = 2 + random.nextInt(600);
+        var l = Math.sqrt(InitialConditions.packingFraction(n, 1, 0.9) / 0.3);
+        var store = InitialConditions.place(InitialConditions.Placement.RANDOM_SEQUENTIAL, n, l, 0.9, random);
+        for (var truncation : LennardJones.Truncation.values()) {
+            assertAgreement(store, l, new LennardJones(1.0, 1.0, LennardJones.DEFAULT_CUTOFF, truncation));
+        }
+    }
+
+    @Test
+    void agreesWhenNoParticleFillsAVector() {
+        var store = new ParticleStore(3);
+        store.set(0, new Particle(1.0, 1.0, 0, 0));
+        store.set(1, new Particle(2.1, 1.0, 0, 0));
+        store.set(2, new Particle(1.5, 2.0, 0, 0));
+        assertAgreement(store, 5.0, LennardJones.of(1.0, 1.0));
+    }
+
+    @Test
+    void agreesOnAGasWithFullVectorsAndTails() {
+        var random = new SplittableRandom(42);
+        var l = Math.sqrt(InitialConditions.packingFraction(500, 1, 0.9) / 0.3);
+        var store = InitialConditions.place(InitialConditions.Placement.RANDOM_SEQUENTIAL, 500, l, 0.9, random);
+        for (var truncation : LennardJones.Truncation.values()) {
+            var potential = new LennardJones(1.0, 1.0, LennardJones.DEFAULT_CUTOFF, truncation);
+            var neighbours = NeighbourList.forPotential(l, potential);
+            neighbours.rebuild(store);
+            int[] offsets = neighbours.offsets();
+            int fullVectors = 0;
+            int tails = 0;
+            for (int i = 0; i < store.size(); ++i) {
+                int partners = offsets[i + 1] - offsets[i];
+                fullVectors += partners / LANES;
+                tails += partners % LANES == 0 ? 0 : 1;
+            }
+            assertTrue(fullVectors > 0, "no particle fills a vector");
+            assertTrue(tails > 0, "no particle has a tail");
+            assertAgreement(store, potential, neighbours);
+        }
+    }
+
+    private static void assertAgreement(ParticleStore store, double l, LennardJones potential) {
+        var neighbours = NeighbourList.forPotential(l, potential);
+        neighbours.rebuild(store);
+        assertAgreement(store, potential, neighbours);
+    }
+
+    private static void assertAgreement(ParticleStore store, LennardJones potential, NeighbourList neighbours) {
+        var scalar = copy(store);
+        var vector = copy(store);
+        SerialForceEngine.INSTANCE.computeForces(scalar, potential, neighbours, true);
+        new VectorForceEngine().computeForces(vector, potential, neighbours, true);
+
+        double maxForce = 0.0;
+        for (int i = 0; i < store.size(); ++i) {
+            maxForce = Math.max(maxForce, Math.hypot(scalar.fx()[i], scalar.fy()[i]));
+        }
+        var forceTolerance = TOLERANCE * Math.max(maxForce, 1.0);
+        for (int i = 0; i < store.size(); ++i) {
+            assertEquals(scalar.fx()[i], vector.fx()[i], forceTolerance, "fx of particle " + i);
+            assertEquals(scalar.fy()[i], vector.fy()[i], forceTolerance, "fy of particle " + i);
+        }
+        assertEquals(scalar.virial(), vector.virial(), TOLERANCE * Math.max(Math.abs(scalar.virial()), 1.0), "virial");
+        assertEquals(
+            scalar.potentialEnergy(), vector.potentialEnergy(),
+            TOLERANCE * Math.max(Math.abs(scalar.potentialEnergy()), 1.0), "potential energy");
+    }
+
+    private static ParticleStore copy(ParticleStore store) {
+        var copy = new ParticleStore(store.size());
+        copy.copyFrom(store);
+        return copy;
+    }
+}